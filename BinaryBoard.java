@@ -0,0 +1,384 @@
+import java.lang.*;
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A TwoDBoard saved in a compact binary form, which is much faster to load and save than the text layout read by TextBoard.readBoard.  The file is a 24 byte header followed by three bit planes, each with one bit per site in the order of the site ids x+y*width.
+ *
+ * The header holds the magic number MSWB, the format version, the lattice (square, hex or wrap), the width, the height and the number of mines, all big-endian.  The planes follow it in the order mined, revealed and flagged, and each plane is a whole number of longs laid out as by BitSet.toLongArray, so the site with id k is bit k%64 of long k/64.  Adjacent mine counts are not stored, since they are quicker to recount from the mined plane than to read.  A 1000x1000 board takes about 375 kilobytes, compared to about a megabyte of text.
+ *
+ * Every site of the width*height lattice is stored, so boards with missing sites (as made by a text file with '#' in it) cannot be saved in this form.
+ *
+ * A checkpoint is a binary board with the SOLVER_STATE bit set in the header's flags, and the state of the solver written by Board.writeSolverState after the planes.  Loading a checkpoint restores the working Edge directly, with all of its MineSets and its queue of unfinished ones, instead of building it again from the revealed Tiles and repeating every comparison.  The solver state starts with the seed of the Board's source of randomness, so the resumed game also breaks ties between guesses as the original would have.  This seed was added in version 2, and a version 1 checkpoint is loaded as a plain board, with its working Edge built again from the revealed Tiles.
+ */
+public class BinaryBoard {
+    private static final int MAGIC = 0x4D535742, VERSION = 2, HEADER_BYTES = 24;
+    /**
+     * The bit of the header's flags which shows that the state of the solver follows the planes.
+     */
+    private static final int SOLVER_STATE = 1;
+    
+    /**
+     * The lattices a binary board can be saved for.  The code of each is its value in the file's header.
+     */
+    public enum Lattice {
+        SQUARE(0), HEX(1), WRAP(2);
+    
+        final int code;
+    
+        Lattice(int code) {
+            this.code = code;
+        }
+    
+        /**
+         * @param   b A Board.
+         * @return  The lattice of b.
+         * @throws  IllegalArgumentException if b is not a type of board which can be saved.
+         */
+        static Lattice of(TwoDBoard b) {
+            if (b instanceof StandardBoard) return SQUARE;
+            if (b instanceof HexBoard) return HEX;
+            if (b instanceof WrapSquareBoard) return WRAP;
+            throw new IllegalArgumentException(b.getClass().getName()+" can't be saved as a binary board.");
+        }
+    
+        /**
+         * @param   code A value from the header of a file.
+         * @return  The lattice with that code, or null if there is none.
+         */
+        static Lattice ofCode(int code) {
+            for (Lattice l : values()) {
+                if (l.code == code) return l;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * The lattice of the saved board.
+     */
+    public final Lattice lattice;
+    /**
+     * The dimensions of the saved board, and its total number of mines.
+     */
+    public final int width, height, mines;
+    private BitSet mined, revealed, flagged;
+    /**
+     * The state of the solver saved with the board, or null if this is not a checkpoint.
+     */
+    private byte[] solverState;
+    
+    private BinaryBoard(Lattice lattice, int width, int height, int mines, BitSet mined, BitSet revealed, BitSet flagged) {
+        this.lattice = lattice;
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        this.mined = mined;
+        this.revealed = revealed;
+        this.flagged = flagged;
+    }
+    
+    /**
+     * @param   k The id of a site, x+y*width.
+     * @return  true if the site has a mine.
+     */
+    public boolean isMined(int k) {
+        return mined.get(k);
+    }
+    
+    /**
+     * @param   k A site id.
+     * @return  The id of the first mined site at or after k, or -1 if there is none.
+     */
+    public int nextMined(int k) {
+        return mined.nextSetBit(k);
+    }
+    
+    /**
+     * @param   k The id of a site, x+y*width.
+     * @return  true if the site has been revealed.
+     */
+    public boolean isRevealed(int k) {
+        return revealed.get(k);
+    }
+    
+    /**
+     * @param   k The id of a site, x+y*width.
+     * @return  true if the site has been flagged.
+     */
+    public boolean isFlagged(int k) {
+        return flagged.get(k);
+    }
+    
+    /**
+     * @return  true if this is a checkpoint, with the state of the solver saved as well as the board.
+     */
+    public boolean hasSolverState() {
+        return solverState != null;
+    }
+    
+    /**
+     * @return  A stream of the saved state of the solver, to be read by Board.readSolverState.
+     * @throws  IllegalStateException if this is not a checkpoint.
+     */
+    DataInput solverState() {
+        if (solverState == null) {
+            throw new IllegalStateException("This board was saved without the state of the solver.");
+        }
+        return new DataInputStream(new ByteArrayInputStream(solverState));
+    }
+    
+    /**
+     * Create a Board of the saved lattice with the saved mines, revealed Tiles and flags.
+     *
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for breaking ties between equally good guesses.
+     * @param   compact Set to true to pack the state of each tile into a byte instead of keeping a Tile object for it.
+     * @return  The new Board.
+     */
+    public TwoDBoard toBoard(boolean probInfo, SplittableRandom random, boolean compact) {
+        switch (lattice) {
+            case HEX:
+                return new HexBoard(this,probInfo,random,compact);
+            case WRAP:
+                return new WrapSquareBoard(this,probInfo,random,compact);
+            default:
+                return new StandardBoard(this,probInfo,random,compact);
+        }
+    }
+    
+    /**
+     * @param   nSites The number of sites on a board.
+     * @return  The number of longs in each bit plane.
+     */
+    private static int planeLongs(long nSites) {
+        return (int)((nSites+63)/64);
+    }
+    
+    /**
+     * Check whether a file starts with the magic number of a binary board, so that it can be told apart from a text board.
+     *
+     * @param   fileName The file to check.
+     * @return  true if the file looks like a binary board.
+     * @throws  IOException if the file cannot be read.
+     */
+    public static boolean isBinary(String fileName) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(fileName),StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining()) {
+                if (ch.read(head) < 0) break;
+            }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        }
+    }
+    
+    /**
+     * Read a binary board.  The file is memory-mapped and each plane is copied straight into a BitSet, so loading takes time proportional to the number of sites divided by 64 rather than one parse per character.
+     *
+     * @param   fileName The file to read.
+     * @return  The contents of the file.
+     * @throws  IOException if the file cannot be read, or is not a consistent binary board.
+     */
+    public static BinaryBoard read(String fileName) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel ch = FileChannel.open(Paths.get(fileName),StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES || ch.size() > Integer.MAX_VALUE) {
+                throw new IOException(fileName+" is not a binary board.");
+            }
+            data = ch.map(FileChannel.MapMode.READ_ONLY,0,ch.size());
+        }
+        if (data.getInt(0) != MAGIC) {
+            throw new IOException(fileName+" is not a binary board.");
+        }
+        short version = data.getShort(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException(fileName+" is version "+version+" of the binary board format, which is not supported.");
+        }
+        Lattice lattice = Lattice.ofCode(data.getShort(6));
+        int width = data.getInt(8), height = data.getInt(12), mines = data.getInt(16), flags = data.getInt(20);
+        if (lattice == null || width <= 0 || height <= 0 || (long)width*height > Integer.MAX_VALUE) {
+            throw new IOException(fileName+" has an invalid header.");
+        }
+        int nLongs = planeLongs((long)width*height);
+        int planesEnd = HEADER_BYTES+3*8*nLongs;
+        if (data.limit() < planesEnd || ((flags & SOLVER_STATE) == 0 && data.limit() != planesEnd)) {
+            throw new IOException(fileName+" is "+data.limit()+" bytes long, but a "+width+"x"+height+" board should take "+planesEnd+".");
+        }
+        data.position(HEADER_BYTES);
+        LongBuffer planes = data.asLongBuffer();
+        BitSet[] plane = new BitSet[3];
+        for (int p = 0; p < 3; p++) {
+            planes.limit((p+1)*nLongs);
+            planes.position(p*nLongs);
+            plane[p] = BitSet.valueOf(planes);
+        }
+        BinaryBoard result = new BinaryBoard(lattice,width,height,mines,plane[0],plane[1],plane[2]);
+        if ((flags & SOLVER_STATE) != 0 && version == VERSION) {
+            result.solverState = new byte[data.limit()-planesEnd];
+            data.position(planesEnd);
+            data.get(result.solverState);
+        }
+        result.validate(fileName);
+        return result;
+    }
+    
+    /**
+     * Make sure the planes describe a board which can be played.
+     *
+     * @param   fileName The file the planes were read from, for error messages.
+     * @throws  IOException if a plane has sites outside the board, the mine count is wrong, a mine has been revealed or a safe site has been flagged.
+     */
+    private void validate(String fileName) throws IOException {
+        int nSites = width*height;
+        if (mined.length() > nSites || revealed.length() > nSites || flagged.length() > nSites) {
+            throw new IOException(fileName+" has sites past the end of the board.");
+        }
+        if (mined.cardinality() != mines) {
+            throw new IOException(fileName+" says it has "+mines+" mines, but "+mined.cardinality()+" sites are mined.");
+        }
+        if (revealed.intersects(mined)) {
+            throw new IOException(fileName+" has a revealed mine.");
+        }
+        BitSet wrongFlags = (BitSet)flagged.clone();
+        wrongFlags.andNot(mined);
+        if (!wrongFlags.isEmpty()) {
+            throw new IOException(fileName+" has a flag on a safe site.");
+        }
+    }
+    
+    /**
+     * Save a Board as a binary board.
+     *
+     * @param   b The Board to save.  It may be in the middle of a game, in which case the revealed Tiles and flags are saved as well as the mines.
+     * @param   fileName The file to write, which is replaced if it exists.
+     * @throws  IOException if the file cannot be written.
+     * @throws  IllegalArgumentException if the Board is not a lattice which can be saved, or has missing sites.
+     */
+    public static void write(TwoDBoard b, String fileName) throws IOException {
+        write(b,fileName,false);
+    }
+    
+    /**
+     * Save a Board in the middle of a game as a checkpoint, with the state of its solver, so that the game can be resumed from exactly this point by reading the file back.  This should only be done between steps of the solver, never while one is running.
+     *
+     * @param   b The Board to save.
+     * @param   fileName The file to write.  If it exists then it is only replaced once the new checkpoint is complete, so an interrupted save never loses the previous checkpoint.
+     * @throws  IOException if the file cannot be written.
+     * @throws  IllegalArgumentException if the Board is not a lattice which can be saved, or has missing sites.
+     */
+    public static void checkpoint(TwoDBoard b, String fileName) throws IOException {
+        write(b,fileName,true);
+    }
+    
+    /**
+     * Write the header and planes of a Board, and the state of its solver if wanted.  The file is written next to its destination under a temporary name and then moved into place.
+     */
+    private static void write(TwoDBoard b, String fileName, boolean withSolver) throws IOException {
+        Lattice lattice = Lattice.of(b);
+        int nSites = b.width*b.height;
+        BitSet mined = new BitSet(nSites), revealed = new BitSet(nSites), flagged = new BitSet(nSites);
+        for (int j = 0; j < b.height; j++) {
+            for (int i = 0; i < b.width; i++) {
+                Tile t = b.getGrid(i,j);
+                if (t == null) {
+                    throw new IllegalArgumentException("The site "+i+","+j+" is missing, so the board can't be saved as a binary board.");
+                }
+                int k = i+j*b.width;
+                if (t.isMined()) mined.set(k);
+                if (t.isRevealed()) revealed.set(k);
+                if (t.isFlagged()) flagged.set(k);
+            }
+        }
+        byte[] state = new byte[0];
+        if (withSolver) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream stateOut = new DataOutputStream(bytes);
+            b.writeSolverState(stateOut);
+            stateOut.flush();
+            state = bytes.toByteArray();
+        }
+        int nLongs = planeLongs(nSites);
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES+3*8*nLongs+state.length);
+        out.putInt(MAGIC).putShort((short)VERSION).putShort((short)lattice.code);
+        out.putInt(b.width).putInt(b.height).putInt(b.N).putInt(withSolver ? SOLVER_STATE : 0);
+        for (BitSet plane : new BitSet[] {mined, revealed, flagged}) {
+            long[] words = plane.toLongArray();
+            out.asLongBuffer().put(words);
+            out.position(out.position()+8*nLongs);
+        }
+        out.put(state);
+        out.flip();
+        Path target = Paths.get(fileName).toAbsolutePath(), partial = target.resolveSibling(target.getFileName()+".part");
+        try (FileChannel ch = FileChannel.open(partial,StandardOpenOption.WRITE,StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                ch.write(out);
+            }
+        }
+        try {
+            Files.move(partial,target,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial,target,StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Write a non-negative number in as few bytes as possible: seven bits in each byte, with the high bit set on every byte but the last.
+     *
+     * @param   out The destination.
+     * @param   n The number to write.
+     * @throws  IOException if out cannot be written.
+     */
+    static void writeVarInt(DataOutput out, int n) throws IOException {
+        while ((n & ~0x7F) != 0) {
+            out.writeByte((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        out.writeByte(n);
+    }
+    
+    /**
+     * Read a number written by writeVarInt.
+     *
+     * @param   in The source.
+     * @return  The number.
+     * @throws  IOException if in cannot be read, or the number is too long.
+     */
+    static int readVarInt(DataInput in) throws IOException {
+        int n = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            n |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return n;
+        }
+        throw new IOException("A saved number is too long.");
+    }
+    
+    /**
+     * Write a number which may be negative, such as the difference between two ids, in as few bytes as possible.  Its sign is moved to the lowest bit (0, -1, 1, -2, ... become 0, 1, 2, 3, ...) so that small negative numbers are as short as small positive ones.
+     *
+     * @param   out The destination.
+     * @param   n The number to write.
+     * @throws  IOException if out cannot be written.
+     */
+    static void writeSignedVarInt(DataOutput out, int n) throws IOException {
+        writeVarInt(out,(n << 1) ^ (n >> 31));
+    }
+    
+    /**
+     * Read a number written by writeSignedVarInt.
+     *
+     * @param   in The source.
+     * @return  The number.
+     * @throws  IOException if in cannot be read, or the number is too long.
+     */
+    static int readSignedVarInt(DataInput in) throws IOException {
+        int n = readVarInt(in);
+        return (n >>> 1) ^ -(n & 1);
+    }
+}
\ No newline at end of file
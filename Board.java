@@ -1,6 +1,8 @@
 import java.lang.*;
 import java.util.*;
 import java.math.*;
+import java.util.concurrent.*;
+import java.io.*;
 
 //It would be interesting to allow for more abstract graphs, but for now this will be a 2-D rectangular grid
 //Only one Edge is used, but more are possible
@@ -13,6 +15,22 @@ import java.math.*;
 public abstract class Board {
     protected Edge working;
     protected Collection<Tile> remainingTiles, completedTiles;
+    /**
+     * The adjacency of this Board's Tiles, indexed by Tile id.  This is null until the Tiles are numbered.
+     */
+    protected TileGraph graph;
+    /**
+     * The source of randomness for generating this Board and for breaking ties between equally good guesses.  Every Board has its own, so games on different threads never wait for each other, and a game played with a seeded source can be repeated exactly.
+     */
+    protected SplittableRandom random;
+    /**
+     * The seed random was last made from.  A SplittableRandom cannot give up its state, so this is how a checkpoint saves it.
+     */
+    private long randomSeed;
+    /**
+     * true while random has not been drawn from since it was made from randomSeed.
+     */
+    private boolean seeded;
     /**
      * The total number of mines in this Board.
      */
@@ -21,6 +39,72 @@ public abstract class Board {
      * The number of mines not yet identified and marked as completed.
      */
     protected int remainingN;
+    /**
+     * The method used to find the probability of each Tile having a mine when guessing.  If this is null when a guess is needed then a LogOdds calculator for this Board's size is used.  An ExactOdds calculator gives BigDecimal precision at a much greater cost.
+     */
+    public OddsCalculator odds;
+    /**
+     * If this is not null then large Edge components are enumerated in parallel on this pool when guessing.
+     */
+    public ForkJoinPool enumerationPool;
+    /**
+     * If this is not null then guesses on an Edge with a component of at least sampling.minTiles Tiles use probabilities estimated by sampling instead of exact enumeration.  The chains run on the enumerationPool if there is one.
+     */
+    public MonteCarloOdds sampling;
+    /**
+     * The estimate behind the last guess which used sampling, with its confidence intervals, or null if there has not been one.
+     */
+    protected MonteCarloOdds.Estimate lastEstimate;
+    /**
+     * If this is positive then statGuess() gives up on exact enumeration after this many nanoseconds and guesses with the best estimate it has by then.  See statGuess(Deadline).
+     */
+    public long guessTimeoutNanos;
+    /**
+     * How the probabilities behind the last guess were found, or null if there has not been a guess.
+     */
+    protected GuessMode lastGuessMode;
+    /**
+     * The last guess made, or null if there has not been one.
+     */
+    protected SolverEvent lastGuess;
+    /**
+     * The order in which each Edge compares its unfinished MineSets.  Comparing the smallest MineSets first reaches the same conclusions with about half as many comparisons as taking them in the order they were found, since small MineSets usually carry the most information.
+     */
+    protected MineSetQueue.Policy schedule = MineSetQueue.Policy.SMALLEST;
+    /**
+     * Where this Board publishes what the solver does to it, or null if nobody is listening.
+     */
+    protected SolverEvents events;
+    
+    /**
+     * The ways statGuess can find the probability of each Tile having a mine, from the most to the least accurate.
+     */
+    public enum GuessMode {
+        /**
+         * Every component of the Edge was enumerated, or there was no Edge, so the probabilities are exact.
+         */
+        EXACT,
+        /**
+         * The probabilities were estimated by MonteCarloOdds, either because the Edge was too large to enumerate or because enumeration ran out of time.
+         */
+        SAMPLED,
+        /**
+         * The deadline passed before sampling found anything, so each Tile was judged from its own MineSets by Edge.estimateLocally.
+         */
+        LOCAL
+    }
+    
+    /**
+     * Change the order in which unfinished MineSets are compared, including those already waiting in the working Edge.
+     *
+     * @param   p The new scheduling policy.  If this is null then MineSets are compared in the order they were found.
+     */
+    public void setSchedule(MineSetQueue.Policy p) {
+        schedule = p;
+        if (working != null) {
+            working.reschedule(p);
+        }
+    }
     
     /**
      * Partial constructor for use by subclasses to set N.
@@ -28,8 +112,19 @@ public abstract class Board {
      * @param n THe number of mines in the board.
      */
     protected Board(int n) {
+        this(n, new SplittableRandom());
+    }
+    
+    /**
+     * Partial constructor for use by subclasses to set N and the source of randomness.
+     *
+     * @param n The number of mines in the board.
+     * @param random The source of randomness for this Board.  If this is null then an unseeded source is used.
+     */
+    protected Board(int n, SplittableRandom random) {
         N = n;
         remainingN = n;
+        this.random = (random == null ? new SplittableRandom() : random);
     }
     
     /**
@@ -41,7 +136,47 @@ public abstract class Board {
      * @throws  BoomException if the guess was wrong and a mine was hit.
      */
     public boolean statGuess() {
-        Collection<Tile> bulk = new HashSet<Tile>(remainingTiles.size()*4/3);
+        return statGuess(guessTimeoutNanos > 0 ? new Deadline(guessTimeoutNanos,TimeUnit.NANOSECONDS) : Deadline.NONE);
+    }
+    
+    /**
+     * Reveal the tile with the lowest probability of being mined, as well as can be worked out within a time limit.
+     *
+     * @param   timeout How long the analysis may take.  The guess itself and the bookkeeping around it take a little longer.
+     * @param   unit The unit of timeout.
+     * @return  true if a guess was made, false if the Board is already solved.
+     * @throws  BoomException if the guess was wrong and a mine was hit.
+     */
+    public boolean statGuess(long timeout, TimeUnit unit) {
+        return statGuess(new Deadline(timeout,unit));
+    }
+    
+    /**
+     * Reveal the tile with the lowest probability of being mined, as well as can be worked out before a deadline.
+     *
+     * The Edge is enumerated exactly until three quarters of the remaining time has gone.  If it is not finished by then, the components which were finished are kept for the next guess and the rest of the time is spent sampling with MonteCarloOdds (the sampling field if it is set, otherwise one with the default settings).  If the deadline passes before sampling finds anything, the Tiles are judged from their own MineSets.  Which of these produced the guess is available from getLastGuessMode().
+     *
+     * @param   deadline When to stop analysing and guess.  It can also be cancelled from another thread to make the guess sooner.
+     * @return  true if a guess was made, false if the Board is already solved.
+     * @throws  BoomException if the guess was wrong and a mine was hit.
+     */
+    public boolean statGuess(Deadline deadline) {
+        long start = System.nanoTime();
+        reseed();
+        seeded = false;
+        try {
+            return guess(deadline);
+        }
+        finally {
+            SolverMetrics.INSTANCE.statGuess(System.nanoTime()-start);
+        }
+    }
+    
+    /**
+     * The body of statGuess, which is timed by statGuess.
+     */
+    private boolean guess(Deadline deadline) {
+        Collection<Tile> bulk = new TileSet(graph);
         Iterator<Tile> tileIt = remainingTiles.iterator();
         while (tileIt.hasNext()) {
             Tile x = tileIt.next();
@@ -49,7 +184,7 @@ public abstract class Board {
                 completedTiles.add(x);
                 tileIt.remove();
             }
-            else if (x.flagged) {
+            else if (x.isFlagged()) {
                 remainingN--;
                 completedTiles.add(x);
                 tileIt.remove();
@@ -61,73 +196,70 @@ public abstract class Board {
         if (remainingTiles.size() == 0) {
             return false;
         }
-        Collection<MinePossibility> edgeMicro;
+        boolean sampled = false;
         if (working != null) {
             for (Tile t : working.edgeTiles()) {
                 bulk.remove(t);
             }
-            edgeMicro = working.allPossibleEdges();
+            sampled = (sampling != null && working.largestComponent() >= sampling.minTiles);
         }
-        else {
-            edgeMicro = new LinkedList<MinePossibility>();
-        }
-        if (edgeMicro.size() == 0) {
-            Tile guessTile = pickEqualOdds(bulk);
-            alertGuess(guessTile,(1-(float)remainingN/bulk.size()));
-            guessTile.reveal();
-            addWorkingTile(guessTile);
-            /*Edge freshEdge = new Edge(guessTile,2*(int)Math.sqrt(N),this);
-            if (working == null) {
-                working = freshEdge;
-            }
-            else {
-                working.add(freshEdge);
-                working.knownTile(guessTile);
-            }*/
-            return true;
-        }
-        BigDecimal totalMicro = new BigDecimal(0);
         int bulkSize = bulk.size();
-        HashMap<Tile,BigDecimal> nStatesMined = new HashMap<Tile,BigDecimal>(working.edgeTiles().size()*4/3+2);
-        nStatesMined.put(null,new BigDecimal(0));
-        for (Tile t : working.edgeTiles()) {
-            nStatesMined.put(t,new BigDecimal(0));
-        }
-        for (MinePossibility x : edgeMicro) {
-            int minesInBulk, minesInEdge = 0;
-            boolean[] thisEdgeMicro = new boolean[x.size()];
-            for (int i = 0; i < thisEdgeMicro.length; i++) {
-                if (x.get(i) == MineState.X) {
-                    thisEdgeMicro[i] = true;
-                    minesInEdge++;
-                }
+        if (odds == null) {
+            odds = new LogOdds(remainingTiles.size()+completedTiles.size());
+        }
+        TileMap<Double> probMined = new TileMap<Double>();
+        boolean found = false;
+        lastGuessMode = GuessMode.EXACT;
+        if (working != null && !sampled) {
+            //leave a quarter of the time to fall back on if enumeration does not finish
+            try {
+                found = odds.findOdds(working.countComponents(remainingN,deadline.earlier(deadline.remainingNanos()/4)),bulkSize,remainingN,probMined);
             }
-            if (minesInEdge > remainingN) {
-                continue;
+            catch (CancellationException e) {
+                sampled = true;
             }
-            else {
-                minesInBulk = remainingN - minesInEdge;
+        }
+        if (sampled) {
+            lastGuessMode = GuessMode.SAMPLED;
+            MonteCarloOdds sampler = (sampling == null ? new MonteCarloOdds() : sampling);
+            try {
+                lastEstimate = sampler.estimate(working,bulkSize,remainingN,enumerationPool,random,deadline);
             }
-            BigDecimal bulkStates = binomCoeff(bulkSize,minesInBulk);
-            for (int i = 0; i < thisEdgeMicro.length; i++) {
-                if (thisEdgeMicro[i]) {
-                    nStatesMined.put(x.getTile(i),nStatesMined.get(x.getTile(i)).add(bulkStates,MathContext.DECIMAL64));
-                }
+            catch (CancellationException e) {
+                lastEstimate = null;
             }
+            found = (lastEstimate != null);
+            if (found) probMined.putAll(lastEstimate.probMined);
+        }
+        if (!found && working != null && deadline.expired()) {
+            lastGuessMode = GuessMode.LOCAL;
+            working.estimateLocally(probMined);
             if (bulkSize > 0) {
-                nStatesMined.put(null,nStatesMined.get(null).add(new BigDecimal((double)minesInBulk/bulkSize).multiply(bulkStates,MathContext.DECIMAL64),MathContext.DECIMAL64));
+                double edgeMines = 0;
+                for (double p : probMined.values()) {
+                    edgeMines += p;
+                }
+                probMined.put(null,Math.min(1,Math.max(0,(remainingN-edgeMines)/bulkSize)));
             }
-            totalMicro = totalMicro.add(bulkStates,MathContext.DECIMAL64);
+            found = true;
         }
-        if (bulkSize == 0) nStatesMined.put(null,totalMicro.add(BigDecimal.ONE,MathContext.DECIMAL64));
+        if (lastGuessMode != GuessMode.EXACT) {
+            SolverMetrics.INSTANCE.approximateGuess();
+        }
+        if (!found) {
+            Tile guessTile = pickEqualOdds(bulk);
+            revealGuess(guessTile,(1-(float)remainingN/bulk.size()));
+            return true;
+        }
+        if (bulkSize == 0) probMined.put(null,Double.POSITIVE_INFINITY);
         LinkedList<Tile> bestOdds = new LinkedList<Tile>();
         bestOdds.add(null);
-        for (Tile t : nStatesMined.keySet()) {
-            if (nStatesMined.get(t).compareTo(nStatesMined.get(bestOdds.peek())) < 0) {
+        for (Tile t : probMined.keySet()) {
+            if (probMined.get(t) < probMined.get(bestOdds.peek())) {
                 bestOdds = new LinkedList<Tile>();
                 bestOdds.add(t);
             }
-            else if (nStatesMined.get(t).equals(nStatesMined.get(bestOdds.peek())) && t != null) {
+            else if (probMined.get(t).equals(probMined.get(bestOdds.peek())) && t != null) {
                 bestOdds.add(t);
             }
         }
@@ -135,9 +267,7 @@ public abstract class Board {
             bestOdds.addAll(bulk);
         }
         Tile chosenTile = pickEqualOdds(bestOdds);
-        alertGuess(chosenTile,(1-nStatesMined.get(nStatesMined.containsKey(chosenTile)?chosenTile:null).divide(totalMicro,MathContext.DECIMAL64).doubleValue()));
-        chosenTile.reveal();
-        addWorkingTile(chosenTile);
+        revealGuess(chosenTile,(1-probMined.get(probMined.containsKey(chosenTile)?chosenTile:null)));
         /*Edge freshEdge = new Edge(chosenTile,2*(int)Math.sqrt(N),this);
         if (working == null) {
             working = freshEdge;
@@ -149,6 +279,24 @@ public abstract class Board {
         return true;
     }
     
+    /**
+     * Reveal a guessed Tile and add it to the working Edge.  The guess is recorded as lastGuess and published once the Tile has been revealed, even if it had a mine, so a listener hearing of the guess knows it has already happened.
+     *
+     * @param   t The Tile to reveal.
+     * @param   odds The probability that the Tile is safe.
+     * @throws  BoomException if the Tile has a mine.
+     */
+    private void revealGuess(Tile t, double odds) {
+        lastGuess = new SolverEvent(SolverEvent.Type.GUESS,this,t,odds);
+        try {
+            t.reveal();
+        }
+        finally {
+            if (events != null) events.publish(lastGuess);
+        }
+        addWorkingTile(t);
+    }
+    
     /**
      * Select one tile to reveal when several have equal probability of being mined.
      *
@@ -164,8 +312,8 @@ public abstract class Board {
         else edgeTiles = working.edgeTiles();
         for (Tile t : tileChoices) {
             int eCtr = 0, bCtr = 0;
-            for (Tile u : t.neighbours) {
-                if (!(u.isRevealed() || u.flagged)) {
+            for (Tile u : t.neighbours()) {
+                if (!(u.isRevealed() || u.isFlagged())) {
                     if (edgeTiles.contains(u)) {
                         eCtr++;
                     }
@@ -183,7 +331,7 @@ public abstract class Board {
                 bestTiles.add(t);
             }
         }
-        return bestTiles.get((int)(Math.random()*bestTiles.size()));
+        return bestTiles.get(random.nextInt(bestTiles.size()));
     }
     
     /**
@@ -193,11 +341,11 @@ public abstract class Board {
      */
     public void knownTile(Tile t) {
         boolean wasHere = false;
-        if (t.isRevealed() || t.flagged) {
+        if (t.isRevealed() || t.isFlagged()) {
             wasHere = remainingTiles.remove(t);
             completedTiles.add(t);
         }
-        if (t.flagged && wasHere) {
+        if (t.isFlagged() && wasHere) {
             remainingN--;
         }
     }
@@ -210,12 +358,84 @@ public abstract class Board {
     }
     
     /**
-     * Used to alert the subclass that a guess is about to be made.  This can be used to display information about which Tile is being revealed.
+     * @return  The estimate behind the last guess which used sampling, or null if there has not been one.
+     */
+    public MonteCarloOdds.Estimate getLastEstimate() {
+        return lastEstimate;
+    }
+    
+    /**
+     * @return  How the probabilities behind the last guess were found, or null if there has not been a guess.
+     */
+    public GuessMode getLastGuessMode() {
+        return lastGuessMode;
+    }
+    
+    /**
+     * @return  The last guess made on this Board, with the Tile's coordinates and the probability that it was safe, or null if there has not been one.
+     */
+    public SolverEvent getLastGuess() {
+        return lastGuess;
+    }
+    
+    /**
+     * @param   e Where to publish what the solver does to this Board from now on, or null to stop publishing.
+     */
+    public void setEvents(SolverEvents e) {
+        events = e;
+    }
+    
+    /**
+     * @return  Where this Board publishes what the solver does to it, or null if it does not.
+     */
+    public SolverEvents getEvents() {
+        return events;
+    }
+    
+    /**
+     * Publish something which happened to a Tile, if anyone is listening.  The event is created only when there is somewhere to publish it, so a Board without listeners pays nothing.
      *
-     * @param   t The Tile which is about to be guessed.
-     * @param   odds The probability that the guess is safe.
+     * @param   type REVEAL or FLAG.
+     * @param   t The Tile.
+     * @param   odds The probability that the Tile is safe.
      */
-    public abstract void alertGuess(Tile t, double odds);
+    void publish(SolverEvent.Type type, Tile t, double odds) {
+        if (events != null) {
+            events.publish(new SolverEvent(type,this,t,odds));
+        }
+    }
+    
+    /**
+     * Publish the end of a round of comparison which changed this Board, if anyone is listening.
+     *
+     * @param   revealed The number of Tiles revealed in the round.
+     * @param   flagged The number of Tiles flagged in the round.
+     */
+    void publishRound(int revealed, int flagged) {
+        if (events != null) {
+            events.publish(new SolverEvent(this,revealed,flagged));
+        }
+    }
+    
+    /**
+     * Find the horizontal coordinate of a Tile, for describing it to listeners.  Boards without coordinates return -1, and listeners must use the Tile's id instead.
+     *
+     * @param   t A Tile of this Board.
+     * @return  The horizontal coordinate of t, or -1.
+     */
+    public int xOf(Tile t) {
+        return -1;
+    }
+    
+    /**
+     * Find the vertical coordinate of a Tile, for describing it to listeners.
+     *
+     * @param   t A Tile of this Board.
+     * @return  The vertical coordinate of t, or -1 if this Board has no coordinates.
+     */
+    public int yOf(Tile t) {
+        return -1;
+    }
     
     //from RosettaCode.org
     public static double binomCoeff(double n, double k) {
@@ -234,6 +454,7 @@ public abstract class Board {
      * @return n choose k
      */
     public static BigDecimal binomCoeff(int n, int k) {
+        if (k < 0 || k > n) return BigDecimal.ZERO;
         BigDecimal result = BigDecimal.ONE;
         for (int i = 1; i < k + 1; i++) {
             result = result.multiply(new BigDecimal(n-i+1),MathContext.DECIMAL64);
@@ -242,6 +463,80 @@ public abstract class Board {
         return result;
     }
     
+    /**
+     * Give each Tile of this Board a dense index, which allows sets of Tiles to be stored as bitsets, and gather the Tiles' lists of neighbours into a TileGraph.  The Tiles must already know their neighbours.  Subclasses with a natural ordering of Tiles may override this.
+     */
+    protected void numberTiles() {
+        int i = 0;
+        for (Tile t : remainingTiles) {
+            t.setId(i++);
+        }
+        graph = TileGraph.fromNeighbourLists(remainingTiles);
+        for (Tile t : remainingTiles) {
+            t.setGraph(graph);
+        }
+    }
+    
+    /**
+     * @return The adjacency of this Board's Tiles, or null if they have not been numbered.
+     */
+    public TileGraph getGraph() {
+        return graph;
+    }
+    
+    /**
+     * @return One more than the largest Tile id on this Board, so that arrays of this length can be indexed by Tile id.
+     */
+    public int tileIdLimit() {
+        return (graph == null ? 0 : graph.size());
+    }
+    
+    /**
+     * Write the state of the solver, which is the seed of the source of randomness and everything the working Edge knows, so that a long solve can be resumed later without repeating any comparisons.  The revealed and flagged Tiles are not included, since they belong to the Board's own layout (see BinaryBoard.checkpoint).
+     *
+     * @param out The destination.
+     * @throws IOException if out cannot be written.
+     */
+    public void writeSolverState(DataOutput out) throws IOException {
+        reseed();
+        out.writeLong(randomSeed);
+        out.writeBoolean(working != null);
+        if (working != null) {
+            working.writeState(out);
+        }
+    }
+    
+    /**
+     * Restore the state of the solver written by writeSolverState, in place of building the working Edge from the revealed Tiles.  The revealed and flagged Tiles must already be restored.  They are moved to completedTiles and the flags are taken off remainingN, exactly as statGuess would do, so the Board carries on from where it was saved.  The source of randomness is made again from its saved seed, so ties between guesses are broken as they would have been.
+     *
+     * @param in The source.
+     * @throws IOException if in cannot be read, or does not hold a valid state for this Board.
+     */
+    protected void readSolverState(DataInput in) throws IOException {
+        for (Iterator<Tile> tileIt = remainingTiles.iterator(); tileIt.hasNext();) {
+            Tile x = tileIt.next();
+            if (x.isRevealed() || x.isFlagged()) {
+                if (x.isFlagged()) remainingN--;
+                completedTiles.add(x);
+                tileIt.remove();
+            }
+        }
+        randomSeed = in.readLong();
+        random = new SplittableRandom(randomSeed);
+        seeded = true;
+        working = (in.readBoolean() ? Edge.readState(in,this) : null);
+    }
+    
+    /**
+     * Replace random with a new source seeded from it, unless it has not been drawn from since it was last replaced.  This is done before every guess and before writing the state of the solver, so a checkpoint between guesses saves exactly the source the next guess will use, and a game plays the same way whether or not checkpoints are written.
+     */
+    private void reseed() {
+        if (seeded) return;
+        randomSeed = random.nextLong();
+        random = new SplittableRandom(randomSeed);
+        seeded = true;
+    }
+    
     /**
      * Add a tile's information to the working edge.  If working does not exist yet then create it.
      *
@@ -257,4 +552,23 @@ public abstract class Board {
             working.knownTile(t);
         }
     }
+    
+    /**
+     * Add the information of many tiles to the working edge at once, as when a board is loaded with much of it already revealed.  This is equivalent to calling addWorkingTile for each of them in order, but builds their Edge in a single pass instead of creating and merging an Edge for every tile.
+     *
+     * @param tiles The revealed tiles to be added to the working edge.
+     */
+    public void addWorkingTiles(Collection<Tile> tiles) {
+        if (tiles.isEmpty()) return;
+        Edge freshEdge = new Edge(tiles,this);
+        if (working == null) {
+            working = freshEdge;
+        }
+        else {
+            working.add(freshEdge);
+            for (Tile t : tiles) {
+                working.knownTile(t);
+            }
+        }
+    }
 }
\ No newline at end of file
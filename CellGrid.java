@@ -0,0 +1,114 @@
+import java.lang.*;
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * The compact storage for a TwoDBoard.  The whole state of each site (whether it has a mine, whether it is revealed or flagged, and how many of its neighbours have mines) is packed into a single byte, indexed by the site's id x+y*width.  No Tile objects are kept at all.  When solver code asks for a Tile, a CellTile is created as a view of the site's byte, and the neighbours of a site are worked out from the lattice when they are needed.  This takes one byte per site instead of a Tile object, a grid entry and a hash set entry.  The board is generated or loaded straight into these bytes, so building it needs little more heap than keeping it.  A 10000x10000 board with 16 million mines keeps about 120 MB, generates within a 150 MB heap, and loads from a binary file within a 200 MB heap, since the file's bit planes are held until the board is filled.
+ *
+ * Since this is a TileGraph, the rest of the solver (TileSet, TileMap and the neighbours of each Tile) works with it unchanged.
+ */
+public class CellGrid extends TileGraph {
+    /**
+     * The bits of a site's byte.  TwoDBoard generates and loads boards straight into this layout, so that no other array of the sites is needed.
+     */
+    static final int ADJACENT = 0x0F, MINED = 0x10, REVEALED = 0x20, FLAGGED = 0x40;
+    private byte[] cells;
+    private TwoDBoard board;
+    
+    /**
+     * Use bytes already packed by a board as its compact storage.
+     *
+     * @param   b The board whose lattice defines the neighbours of each site.
+     * @param   cells For each site, its MINED bit and number of neighbouring mines, as made by TwoDBoard.placeMines and countAdjacent.  The array is kept rather than copied, so it must not be used by the caller afterwards.
+     */
+    public CellGrid(TwoDBoard b, byte[] cells) {
+        board = b;
+        this.cells = cells;
+    }
+    
+    public int size() {
+        return cells.length;
+    }
+    
+    /**
+     * @param   id A site id.
+     * @return  A new view of the site.  Views of the same site are equal to each other.
+     */
+    public Tile getTile(int id) {
+        return new CellTile(this,id,id%board.width,id/board.width);
+    }
+    
+    public int degree(int id) {
+        return board.neighbourIndices(id%board.width,id/board.width,new int[board.maxNeighbours()]);
+    }
+    
+    public int neighbourId(int id, int k) {
+        int[] nbrs = new int[board.maxNeighbours()];
+        board.neighbourIndices(id%board.width,id/board.width,nbrs);
+        return nbrs[k];
+    }
+    
+    public List<Tile> neighbours(int id) {
+        int[] nbrs = new int[board.maxNeighbours()];
+        int n = board.neighbourIndices(id%board.width,id/board.width,nbrs);
+        ArrayList<Tile> result = new ArrayList<Tile>(n);
+        for (int m = 0; m < n; m++) {
+            result.add(getTile(nbrs[m]));
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    /**
+     * @param   id A site id.
+     * @return  true if the site is revealed.
+     */
+    public boolean isRevealed(int id) {
+        return (cells[id] & REVEALED) != 0;
+    }
+    
+    /**
+     * @param   id A site id.
+     * @return  true if the site is flagged.
+     */
+    public boolean isFlagged(int id) {
+        return (cells[id] & FLAGGED) != 0;
+    }
+    
+    /**
+     * @param   id A site id.
+     * @return  true if the site has a mine.
+     */
+    boolean isMined(int id) {
+        return (cells[id] & MINED) != 0;
+    }
+    
+    /**
+     * @param   id A site id.
+     * @return  The number of neighbouring mines, or -1 if the site has a mine.
+     */
+    int adjacent(int id) {
+        return (isMined(id) ? -1 : cells[id] & ADJACENT);
+    }
+    
+    /**
+     * Mark a site as revealed.
+     *
+     * @param   id A site id.
+     */
+    void setRevealed(int id) {
+        cells[id] |= REVEALED;
+    }
+    
+    /**
+     * Mark a site as flagged.
+     *
+     * @param   id A site id.
+     * @return  true if the site was not already flagged.
+     */
+    boolean setFlagged(int id) {
+        if (isFlagged(id)) return false;
+        cells[id] |= FLAGGED;
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * @author  Matheson Longton
+ *
+ * A Tile which is only a view of one site of a CellGrid.  It holds no state of its own: revealing or flagging it changes the site's byte in the grid, and any other view of the same site sees the change.  Views are created whenever they are asked for, so two views of one site are usually different objects, and they are equal (with equal hash codes) instead of being identical.
+ */
+public class CellTile extends SquareTile {
+    private CellGrid cells;
+    
+    /**
+     * @param cells The grid holding the state of the site.
+     * @param id The id of the site, x+y*width.
+     * @param xCoord The horizontal coordinate of the site.
+     * @param yCoord The vertical coordinate of the site.
+     */
+    public CellTile(CellGrid cells, int id, int xCoord, int yCoord) {
+        super(false, false, 0, xCoord, yCoord);
+        this.cells = cells;
+        setId(id);
+        setGraph(cells);
+    }
+    
+    public boolean isRevealed() {
+        return cells.isRevealed(getId());
+    }
+    
+    public boolean isFlagged() {
+        return cells.isFlagged(getId());
+    }
+    
+    boolean isMined() {
+        return cells.isMined(getId());
+    }
+    
+    public int adjacentMines() {
+        return (isRevealed() ? cells.adjacent(getId()) : -1);
+    }
+    
+    public boolean flag() {
+        return cells.setFlagged(getId());
+    }
+    
+    public int reveal() throws BoomException {
+        cells.setRevealed(getId());
+        if (cells.isMined(getId())) {
+            throw new BoomException();
+        }
+        return cells.adjacent(getId());
+    }
+    
+    public boolean equals(Object o) {
+        return (o instanceof CellTile) && ((CellTile)o).cells == cells && ((CellTile)o).getId() == getId();
+    }
+    
+    public int hashCode() {
+        return getId();
+    }
+}
@@ -0,0 +1,84 @@
+import java.lang.*;
+import java.util.concurrent.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A point in time after which the solver should stop searching and make do with what it has.  The long loops of the solver (the enumeration in EdgeEnumerator and the sampling in MonteCarloOdds) check their Deadline every so often, and give up by throwing a CancellationException or by returning early.  A Deadline can also be cancelled from another thread, which has the same effect as it passing.
+ */
+public class Deadline {
+    /**
+     * A Deadline which never passes.
+     */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+    private final long end;
+    private final boolean unlimited;
+    private final Deadline parent;
+    private volatile boolean cancelled;
+    
+    /**
+     * Create a Deadline some time from now.
+     *
+     * @param   timeout How long until the Deadline passes.  Long.MAX_VALUE means it never passes on its own.
+     * @param   unit The unit of timeout.
+     */
+    public Deadline(long timeout, TimeUnit unit) {
+        this(unit.toNanos(timeout));
+    }
+    
+    private Deadline(long nanos) {
+        unlimited = (nanos == Long.MAX_VALUE);
+        end = System.nanoTime()+(unlimited ? 0 : nanos);
+        parent = null;
+    }
+    
+    private Deadline(Deadline parent, long nanos) {
+        unlimited = parent.unlimited;
+        end = parent.end-nanos;
+        this.parent = parent;
+    }
+    
+    /**
+     * Create a Deadline which passes some time before this one, and is cancelled along with it, so that part of a search can leave time for the rest.
+     *
+     * @param   nanos How long before this Deadline the new one passes.
+     * @return  The earlier Deadline.
+     */
+    public Deadline earlier(long nanos) {
+        return new Deadline(this,Math.max(0,nanos));
+    }
+    
+    /**
+     * Make the Deadline pass now.  Searches checking it stop the next time they look.
+     */
+    public void cancel() {
+        if (this != NONE) cancelled = true;
+    }
+    
+    /**
+     * @return  true if the Deadline has passed or been cancelled.
+     */
+    public boolean expired() {
+        return cancelled || (!unlimited && System.nanoTime()-end >= 0) || (parent != null && parent.expired());
+    }
+    
+    /**
+     * @return  The number of nanoseconds left, which is 0 if the Deadline has passed or been cancelled and Long.MAX_VALUE if it never passes.
+     */
+    public long remainingNanos() {
+        if (expired()) return 0;
+        if (unlimited) return Long.MAX_VALUE;
+        return Math.max(0,end-System.nanoTime());
+    }
+    
+    /**
+     * Stop the current search if the Deadline has passed.
+     *
+     * @throws  CancellationException if it has.
+     */
+    public void check() {
+        if (expired()) {
+            throw new CancellationException("The deadline for this search has passed.");
+        }
+    }
+}
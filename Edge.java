@@ -1,5 +1,7 @@
 import java.lang.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
 
 /**
  * @author  Matheson Longton
@@ -7,9 +9,81 @@ import java.util.*;
  * An Edge object provides a way to store and study all of the information which is known about a Minesweeper board.  It collects MineSets describing its knowledge and allows them to be processed in order to find new information and hopefully find tiles which become known.
  */
 public class Edge {
-    private HashMap<Tile, MineSetList> setsForTile; //would be bad if changes to a Tile altered the hashCode
-    private MineSetList unfinished;
+    private TileMap<MineSetList> setsForTile;
+    private MineSetQueue unfinished;
     protected Board ownerBoard;
+    /**
+     * The smallest component which is worth enumerating in parallel when the Board has an enumerationPool.
+     */
+    public static int minParallelTiles = 24;
+    /**
+     * The tallies from the last call to countComponents, keyed by the identities of each component's MineSets.
+     */
+    private HashMap<Long,CachedCounts> countCache = new HashMap<Long,CachedCounts>();
+    
+    /**
+     * The tally of one component together with a copy of the contents of the MineSets it was counted from, so it can be reused as long as those MineSets have not changed.  The contents are copied into plain arrays rather than new MineSets, so keeping a tally does not count towards the MineSets created in SolverMetrics.
+     */
+    private static class CachedCounts {
+        ArrayList<MineSet> sets;
+        /**
+         * For each MineSet, its Tiles in the order it held them and its possible numbers of mines.  Tiles are only ever removed from a MineSet, so an unchanged MineSet still lists the same Tiles in the same order.
+         */
+        Tile[][] tiles;
+        int[][] possible;
+        int maxMines;
+        MineCounts counts;
+        
+        CachedCounts(Collection<MineSet> info, int maxMines, MineCounts counts) {
+            sets = new ArrayList<MineSet>(info);
+            tiles = new Tile[sets.size()][];
+            possible = new int[sets.size()][];
+            for (int i = 0; i < sets.size(); i++) {
+                MineSet m = sets.get(i);
+                tiles[i] = new Tile[m.tileCount()];
+                int k = 0;
+                for (Iterator<Tile> it = m.tileIterator(); it.hasNext();) {
+                    tiles[i][k++] = it.next();
+                }
+                possible[i] = new int[m.possibleMines.size()];
+                k = 0;
+                for (int n : m.possibleMines) {
+                    possible[i][k++] = n;
+                }
+            }
+            this.maxMines = maxMines;
+            this.counts = counts;
+        }
+        
+        /**
+         * @return  true if the tally is still correct for a component described by info, with at most maxMines mines.
+         */
+        boolean matches(Collection<MineSet> info, int maxMines, int nTiles) {
+            if (maxMines > this.maxMines || nTiles != counts.size() || info.size() != sets.size()) return false;
+            int i = 0;
+            for (MineSet m : info) {
+                if (m != sets.get(i) || !unchanged(m,i)) return false;
+                i++;
+            }
+            return true;
+        }
+        
+        /**
+         * @return  true if a MineSet still holds exactly what was copied from the MineSet at position i.
+         */
+        private boolean unchanged(MineSet m, int i) {
+            if (m.tileCount() != tiles[i].length || m.possibleMines.size() != possible[i].length) return false;
+            int k = 0;
+            for (Iterator<Tile> it = m.tileIterator(); it.hasNext();) {
+                if (it.next() != tiles[i][k++]) return false;
+            }
+            k = 0;
+            for (int n : m.possibleMines) {
+                if (n != possible[i][k++]) return false;
+            }
+            return true;
+        }
+    }
     
     /**
      * Create an Edge based on a single revealed Tile
@@ -17,27 +91,230 @@ public class Edge {
      * Creates an Edge object containing only the information provided by a single revealed tile: what neighbours it has and how many of them have mines.
      *
      * @param   revealed The tile to base this Edge on.
-     * @param   estSize The expected number of Tiles that this Edge will contain, used as the size of an internal hash.
+     * @param   estSize The expected number of Tiles that this Edge will contain.  Tiles are indexed by id, so this is no longer needed.
      * @param   b The Board containing the tiles this Edge will study.
      */
     public Edge(Tile revealed, int estSize, Board b) {
         ownerBoard = b;
         if (!revealed.isRevealed()) {
-            setsForTile = new HashMap<Tile,MineSetList>();
+            setsForTile = new TileMap<MineSetList>();
             setsForTile.put(revealed,null);
-            unfinished = new MineSetList();
+            unfinished = new MineSetQueue(schedule());
             return;
         }
         Collection<Tile> beginning = revealed.hiddenNeighbours();
         MineSet initMS = new MineSet(revealed.adjacentMines(), beginning);
         initMS.removeKnown();
-        unfinished = new MineSetList(initMS);
-        setsForTile = new HashMap<Tile,MineSetList>(estSize);
-        for (Tile tl : beginning) {
-            setsForTile.put(tl,new MineSetList(initMS));
+        unfinished = new MineSetQueue(schedule(),initMS);
+        setsForTile = new TileMap<MineSetList>();
+        for (Iterator<Tile> it = initMS.tileIterator(); it.hasNext();) {
+            setsForTile.put(it.next(),new MineSetList(initMS));
+        }
+    }
+    
+    /**
+     * Create an Edge based on many revealed Tiles at once, such as all of those in a board read from a file.
+     *
+     * This gives the same Edge as creating one for the first Tile and adding one for each of the others, but in a single pass.  The MineSet of each Tile is looked up in the unfinished queue, which holds every MineSet until comparison starts, so a MineSet with the same Tiles as an earlier one only narrows it instead of being added again.  The queue and the index of Tiles are sized for all of the Tiles up front, instead of each Tile getting its own Edge to be merged and thrown away.
+     *
+     * @param   revealed The Tiles to base this Edge on.  Tiles which are not revealed are ignored.
+     * @param   b The Board containing the tiles this Edge will study.
+     */
+    public Edge(Collection<Tile> revealed, Board b) {
+        ownerBoard = b;
+        unfinished = new MineSetQueue(schedule(),revealed.size());
+        int firstId = Integer.MAX_VALUE, lastId = -1;
+        for (Tile t : revealed) {
+            firstId = Math.min(firstId,t.getId());
+            lastId = Math.max(lastId,t.getId());
+        }
+        setsForTile = new TileMap<MineSetList>(firstId,lastId);
+        for (Tile t : revealed) {
+            if (!t.isRevealed()) continue;
+            MineSet m = new MineSet(t.adjacentMines(),t.hiddenNeighbours());
+            m.removeKnown();
+            if (unfinished.containsTiles(m) == null) {
+                for (Iterator<Tile> it = m.tileIterator(); it.hasNext();) {
+                    Tile x = it.next();
+                    MineSetList sets = setsForTile.get(x);
+                    if (sets == null) {
+                        sets = new MineSetList();
+                        setsForTile.put(x,sets);
+                    }
+                    sets.add(m);
+                }
+            }
+            unfinished.addOrUpdate(m);
         }
     }
     
+    /**
+     * @return  The order in which the owning Board wants unfinished MineSets to be compared.
+     */
+    private MineSetQueue.Policy schedule() {
+        return (ownerBoard == null ? null : ownerBoard.schedule);
+    }
+    
+    /**
+     * Change the order in which this Edge compares its unfinished MineSets.  Each MineSet keeps its place in the history of the queue, so changing back to the old policy gives back the old order.
+     *
+     * @param   p The new scheduling policy.
+     */
+    public void reschedule(MineSetQueue.Policy p) {
+        unfinished = new MineSetQueue(p,unfinished);
+    }
+    
+    /**
+     * Create an Edge with no information, to be filled by readState.
+     *
+     * @param   b The Board containing the tiles this Edge will study.
+     */
+    private Edge(Board b) {
+        ownerBoard = b;
+        setsForTile = new TileMap<MineSetList>();
+        unfinished = new MineSetQueue(schedule());
+    }
+    
+    /**
+     * Write everything this Edge knows, so that it can be restored by readState without comparing any MineSets again.
+     * Each MineSet is written once, as its possible numbers of mines and the ids of its Tiles in the MineSet's own order, even though it appears in the list of every one of its Tiles.  Then the list of MineSets for each Tile and the unfinished queue are written as indices into those MineSets, so the restored Edge shares MineSets between lists exactly as this one does.  Each unfinished MineSet also has its place in the queue written (when it was added and last updated, relative to the others), so the queue polls in the same order once restored under any scheduling policy.  All numbers are written with BinaryBoard.writeVarInt, and ids as differences from the one before (BinaryBoard.writeSignedVarInt for those which may be negative), so most take a single byte.
+     *
+     * @param   out The destination.
+     * @throws  IOException if out cannot be written.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        IdentityHashMap<MineSet,Integer> index = new IdentityHashMap<MineSet,Integer>();
+        ArrayList<MineSet> sets = new ArrayList<MineSet>();
+        for (MineSetList l : setsForTile.values()) {
+            if (l == null) continue;
+            for (MineSet m : l) {
+                if (!index.containsKey(m)) {
+                    index.put(m,sets.size());
+                    sets.add(m);
+                }
+            }
+        }
+        for (MineSet m : unfinished) {
+            if (!index.containsKey(m)) {
+                index.put(m,sets.size());
+                sets.add(m);
+            }
+        }
+        BinaryBoard.writeVarInt(out,sets.size());
+        for (MineSet m : sets) {
+            BinaryBoard.writeVarInt(out,m.possibleMines.size());
+            int last = 0;
+            for (int n : m.possibleMines) {
+                BinaryBoard.writeVarInt(out,n-last);
+                last = n;
+            }
+            //the Tiles keep their own order, which decides the order that comparing the MineSet finds new information in
+            BinaryBoard.writeVarInt(out,m.tileCount());
+            last = 0;
+            for (Iterator<Tile> it = m.tileIterator(); it.hasNext();) {
+                int id = it.next().getId();
+                if (id < 0) {
+                    throw new IllegalStateException("Only an Edge on numbered Tiles can be saved.");
+                }
+                BinaryBoard.writeSignedVarInt(out,id-last);
+                last = id;
+            }
+        }
+        BinaryBoard.writeVarInt(out,setsForTile.size());
+        for (Map.Entry<Tile,MineSetList> e : setsForTile.entrySet()) {
+            BinaryBoard.writeVarInt(out,e.getKey().getId());
+            //0 for a Tile without a list, otherwise one more than the length of the list
+            BinaryBoard.writeVarInt(out,(e.getValue() == null ? 0 : e.getValue().size()+1));
+            if (e.getValue() == null) continue;
+            for (MineSet m : e.getValue()) {
+                BinaryBoard.writeVarInt(out,index.get(m));
+            }
+        }
+        //the queue's counter values are written as their ranks among each other, which is all the scheduling policies compare
+        long[] stamps = new long[2*unfinished.size()];
+        int k = 0;
+        for (MineSet m : unfinished) {
+            long[] st = unfinished.stamps(m);
+            stamps[k++] = st[0];
+            stamps[k++] = st[1];
+        }
+        Arrays.sort(stamps);
+        BinaryBoard.writeVarInt(out,unfinished.size());
+        for (MineSet m : unfinished) {
+            long[] st = unfinished.stamps(m);
+            BinaryBoard.writeVarInt(out,index.get(m));
+            BinaryBoard.writeVarInt(out,Arrays.binarySearch(stamps,st[0]));
+            BinaryBoard.writeVarInt(out,Arrays.binarySearch(stamps,st[1]));
+        }
+    }
+    
+    /**
+     * Restore an Edge written by writeState.  The unfinished MineSets are queued using the owning Board's current scheduling policy, each remembering when it was added and last updated, so a Board with the same policy as when the Edge was written compares them in the same order.
+     *
+     * @param   in The source.
+     * @param   b The Board whose Tiles the Edge studies.  It must have been restored to the state the Edge was written in.
+     * @return  The restored Edge.
+     * @throws  IOException if in cannot be read, or does not hold a valid Edge for b.
+     */
+    public static Edge readState(DataInput in, Board b) throws IOException {
+        Edge result = new Edge(b);
+        TileGraph graph = b.getGraph();
+        MineSet[] sets = new MineSet[BinaryBoard.readVarInt(in)];
+        for (int s = 0; s < sets.length; s++) {
+            TreeSet<Integer> possible = new TreeSet<Integer>();
+            int n = 0;
+            for (int k = BinaryBoard.readVarInt(in); k > 0; k--) {
+                n += BinaryBoard.readVarInt(in);
+                possible.add(n);
+            }
+            ArrayList<Tile> tiles = new ArrayList<Tile>();
+            int id = 0;
+            for (int k = BinaryBoard.readVarInt(in); k > 0; k--) {
+                id += BinaryBoard.readSignedVarInt(in);
+                tiles.add(tileOf(graph,id));
+            }
+            sets[s] = new MineSet(possible,tiles);
+        }
+        for (int k = BinaryBoard.readVarInt(in); k > 0; k--) {
+            Tile t = tileOf(graph,BinaryBoard.readVarInt(in));
+            int length = BinaryBoard.readVarInt(in)-1;
+            MineSetList l = (length < 0 ? null : new MineSetList());
+            for (int i = 0; i < length; i++) {
+                l.add(setOf(sets,BinaryBoard.readVarInt(in)));
+            }
+            result.setsForTile.put(t,l);
+        }
+        for (int k = BinaryBoard.readVarInt(in); k > 0; k--) {
+            MineSet m = setOf(sets,BinaryBoard.readVarInt(in));
+            long firstSeen = BinaryBoard.readVarInt(in);
+            result.unfinished.restore(m,firstSeen,BinaryBoard.readVarInt(in));
+        }
+        return result;
+    }
+    
+    /**
+     * @return  The Tile of graph with the given id.
+     * @throws  IOException if there is no such Tile.
+     */
+    private static Tile tileOf(TileGraph graph, int id) throws IOException {
+        Tile t = (id >= 0 && id < graph.size() ? graph.getTile(id) : null);
+        if (t == null) {
+            throw new IOException("The saved Edge refers to a Tile "+id+" which is not on the Board.");
+        }
+        return t;
+    }
+    
+    /**
+     * @return  The MineSet with the given index.
+     * @throws  IOException if there is no such MineSet.
+     */
+    private static MineSet setOf(MineSet[] sets, int i) throws IOException {
+        if (i < 0 || i >= sets.length) {
+            throw new IOException("The saved Edge refers to a MineSet "+i+" which was not saved.");
+        }
+        return sets[i];
+    }
+    
     /**
      * Get a collection of Tiles which this Edge has some information about.  Once Tiles are known, they are removed from this.
      *
@@ -59,13 +336,19 @@ public class Edge {
             }
             else {
                 for (MineSet y : other.setsForTile.get(x)) {
-                    if (setsForTile.get(x).addOrUpdate(y) != null) {
-                        unfinished.addOrUpdate(y);
+                    MineSet changed = setsForTile.get(x).addOrUpdate(y);
+                    if (changed != null) {
+                        unfinished.addOrUpdate(changed);
                     }
                 }
             }
         }
-        unfinished.addOrUpdateAll(other.unfinished);
+        //queue the MineSets this Edge keeps, not copies which would miss later updates to their Tiles
+        for (MineSet y : other.unfinished) {
+            Iterator<Tile> it = y.tileIterator();
+            MineSet kept = (it.hasNext() ? setsForTile.get(it.next()).containsTiles(y) : null);
+            unfinished.addOrUpdate(kept == null ? y : kept);
+        }
     }
     
     /**
@@ -94,6 +377,8 @@ public class Edge {
         if (unfinished.isEmpty()) {
             return false;
         }
+        long start = System.nanoTime();
+        SolverMetrics.INSTANCE.edgeSize(unfinished.size(),setsForTile.size());
         MineSet x = unfinished.poll();
         if (doPrint) { //first debugging section
             System.out.println("MineSet being compared: "+x);
@@ -116,13 +401,14 @@ public class Edge {
                     Iterator<Tile> tileIt = b.tileIterator();
                     while (tileIt.hasNext()) {
                         Tile c = tileIt.next();
-                        if (c.isRevealed() || c.flagged) {
+                        if (c.isRevealed() || c.isFlagged()) {
                             System.out.println("****** There is a known tile in the edge: "+((c instanceof SquareTile)?((SquareTile)c).toFullString():c)+" ******");
                         }
                     }
                 }
             }
         } //end debgging section
+        SolverMetrics.INSTANCE.compareOne(System.nanoTime()-start);
         return temp;
     }
     
@@ -135,17 +421,17 @@ public class Edge {
     public boolean compareOne(MineSet x) {
         boolean madeChange = false; //true only for a changed board, not just any new knowledge
         //step 1: gather all neighbouring information for comparison
-        MineSetList xNeighbours = new MineSetList();
-        Iterator<Tile> it = x.tileIterator();
-        while (it.hasNext()) {
-            Tile xTile = it.next();
-            xNeighbours.addOrUpdateAll(setsForTile.get(xTile));
-        }
+        IdentityHashMap<MineSet,int[]> overlaps = new IdentityHashMap<MineSet,int[]>();
+        MineSetList xNeighbours = neighbours(x,overlaps);
+        Iterator<Tile> it;
         //step 2: compare sets to generate and identify new information
-        HashSet<Tile> newClearTile = new HashSet<Tile>(), newFlaggedTile = new HashSet<Tile>(); //could use TreeSet if tiles are comparable
-        MineSetList toProcess = new MineSetList();
+        //insertion order keeps the order of reveals, and so the whole game, repeatable for a seeded Board
+        LinkedHashSet<Tile> newClearTile = new LinkedHashSet<Tile>(), newFlaggedTile = new LinkedHashSet<Tile>();
+        MineSetList toProcess = new HashedMineSetList();
         for (MineSet y : xNeighbours) {
-            MineSet[] xyParts = x.splitWith(y);
+            int overlap = overlaps.get(y)[0];
+            if (!informative(x,y,overlap)) continue;
+            MineSet[] xyParts = x.splitWith(y,overlap);
             for (int i = 0; i < 3; i++) {
                 if (xyParts[i].possibleMines.size() == 1) {
                     if (xyParts[i].possibleMines.first() == 0) {
@@ -182,6 +468,7 @@ public class Edge {
             toRemoveKnown.addAll(setsForTile.get(finishedTile));
             setsForTile.remove(finishedTile);
             ownerBoard.knownTile(finishedTile);
+            ownerBoard.publish(SolverEvent.Type.REVEAL,finishedTile,1);
             madeChange = true;
         }
         for (Tile finishedTile : newFlaggedTile) {
@@ -189,8 +476,12 @@ public class Edge {
             toRemoveKnown.addAll(setsForTile.get(finishedTile));
             setsForTile.remove(finishedTile);
             ownerBoard.knownTile(finishedTile);
+            ownerBoard.publish(SolverEvent.Type.FLAG,finishedTile,0);
             madeChange = true;
         }
+        if (madeChange) {
+            ownerBoard.publishRound(newClearTile.size(),newFlaggedTile.size());
+        }
         for (MineSet toClean : toRemoveKnown) {
             toClean.removeKnown();
             unfinished.addOrUpdate(toClean);
@@ -203,6 +494,49 @@ public class Edge {
         return madeChange;
     }
     
+    /**
+     * Find the distinct MineSets of this Edge which share a Tile with a given MineSet.  A MineSet is listed under each of its Tiles, so it is usually met several times; it is recognised again by identity, and the number of times it is met is the number of Tiles it shares with x.  Only the distinct MineSets found are then checked against each other by their Tiles, to merge the copies which removeKnown leaves behind when it shrinks one MineSet onto another.
+     *
+     * @param   x The MineSet to find the neighbours of.  It is normally among them itself.
+     * @param   overlaps A map to be filled with the number of Tiles each MineSet met shares with x, in the first element of its array.
+     * @return  The neighbours, in the order they were first found.
+     */
+    private MineSetList neighbours(MineSet x, IdentityHashMap<MineSet,int[]> overlaps) {
+        ArrayList<MineSet> found = new ArrayList<MineSet>();
+        for (Iterator<Tile> it = x.tileIterator(); it.hasNext();) {
+            MineSetList sets = setsForTile.get(it.next());
+            if (sets == null) continue;
+            for (MineSet y : sets) {
+                int[] overlap = overlaps.get(y);
+                if (overlap == null) {
+                    overlap = new int[1];
+                    overlaps.put(y,overlap);
+                    found.add(y);
+                }
+                overlap[0]++;
+            }
+        }
+        MineSetList result = new HashedMineSetList();
+        for (MineSet y : found) {
+            result.addOrUpdate(y);
+        }
+        return result;
+    }
+    
+    /**
+     * Decide from the size of their overlap whether splitting two MineSets could tell us anything.  A MineSet split with itself, or with another holding the same Tiles and the same possible numbers of mines, only gives back copies of itself, unless it already settles all of its Tiles and the split is what reveals or flags them.
+     *
+     * @param   x The MineSet being compared.
+     * @param   y One of its neighbours.
+     * @param   overlap The number of Tiles they share.
+     * @return  false if the split is sure to add nothing.
+     */
+    private static boolean informative(MineSet x, MineSet y, int overlap) {
+        if (overlap != x.tileCount() || overlap != y.tileCount()) return true;
+        if (y != x && !y.possibleMines.equals(x.possibleMines)) return true;
+        return (x.possibleMines.size() == 1 && (x.possibleMines.first() == 0 || x.possibleMines.first() == x.tileCount()));
+    }
+    
     /**
      * Add a MineSet to this Edge and include it in the list of unfinished MineSets if it contains any new information.
      *
@@ -245,43 +579,190 @@ public class Edge {
             y.removeKnown();
             unfinished.addOrUpdate(y);
         }
-        if (x.isRevealed() || x.flagged) {
+        if (x.isRevealed() || x.isFlagged()) {
             setsForTile.remove(x);
         }
     }
     
+    /**
+     * Split this Edge into independent components.  Two Tiles are in the same component if they are connected through MineSets which share Tiles, so the arrangement of mines in one component places no restriction on any other component (apart from the total number of mines on the Board).
+     *
+     * @return  A list of components, each of which lists its Tiles in a contiguous order.
+     */
+    public List<ArrayList<Tile>> components() {
+        ArrayList<ArrayList<Tile>> result = new ArrayList<ArrayList<Tile>>();
+        HashSet<Tile> seen = new HashSet<Tile>(setsForTile.size()*4/3+1);
+        for (Tile start : setsForTile.keySet()) {
+            if (!seen.add(start)) continue;
+            //putting MineSets in a contiguous order gives faster analysis than a random order
+            ArrayList<Tile> tileOrder = new ArrayList<Tile>();
+            tileOrder.add(start);
+            for (int i = 0; i < tileOrder.size(); i++) {
+                MineSetList sets = setsForTile.get(tileOrder.get(i));
+                if (sets == null) continue;
+                for (MineSet m : sets) {
+                    for (Iterator<Tile> tileIt = m.tileIterator(); tileIt.hasNext();) {
+                        Tile s = tileIt.next();
+                        if (setsForTile.containsKey(s) && seen.add(s)) {
+                            tileOrder.add(s);
+                        }
+                    }
+                }
+            }
+            result.add(tileOrder);
+        }
+        return result;
+    }
+    
+    /**
+     * @return  The number of Tiles in the largest component of this Edge, or 0 if it is empty.
+     */
+    public int largestComponent() {
+        int largest = 0;
+        for (ArrayList<Tile> component : components()) {
+            largest = Math.max(largest,component.size());
+        }
+        return largest;
+    }
+    
+    /**
+     * Estimate the probability that each Tile of this Edge has a mine from its own MineSets alone (Tiles without a list of MineSets are skipped, as components skips them), without looking for arrangements which satisfy them all.  Each MineSet suggests the middle of its possible numbers of mines spread evenly over its Tiles, and each Tile takes the highest suggestion of the MineSets containing it, to stay on the safe side.  This takes time proportional to the size of the Edge, so it is always available when there is no time to do better.
+     *
+     * @param   probMined A map to be filled with the estimate for each Tile.
+     */
+    public void estimateLocally(Map<Tile,Double> probMined) {
+        for (Map.Entry<Tile,MineSetList> e : setsForTile.entrySet()) {
+            if (e.getValue() == null) continue; //a Tile which was never revealed has no MineSets to judge it by
+            double p = 0;
+            for (MineSet m : e.getValue()) {
+                double middle = (m.possibleMines.first()+m.possibleMines.last())/2.0;
+                p = Math.max(p,middle/m.tileCount());
+            }
+            probMined.put(e.getKey(),Math.min(1,p));
+        }
+    }
+    
     /**
      * Find all possible ways that mines could be placed on the Tiles of this Edge.
      *
      * @return A list of MinePossibility objects, each one representing one allowed arrangement of mines on the Tiles of this Edge.
      */
     public Collection<MinePossibility> allPossibleEdges() {
-        MineSetList allInfo = new MineSetList();
         ArrayList<Tile> tileOrder = new ArrayList<Tile>(setsForTile.size());
-        //putting MineSets in a contiguous order gives faster analysis than a random order
-        LinkedList<Tile> keys = new LinkedList<Tile>(setsForTile.keySet()), linkedTiles = new LinkedList<Tile>();
-        while (!keys.isEmpty()) {
-            Tile t;
-            if (linkedTiles.isEmpty()) {
-                t = keys.poll();
+        for (ArrayList<Tile> component : components()) {
+            tileOrder.addAll(component);
+        }
+        return allPossibleEdges(tileOrder);
+    }
+    
+    /**
+     * Count the possible ways that mines could be placed on one component of this Edge.  The arrangements are counted as they are found rather than stored.  Large components are searched in parallel if the Board has an enumerationPool.
+     *
+     * @param   component The Tiles of one component, as returned by components().
+     * @param   maxMines The largest number of mines which may be placed in the component.
+     * @return  A tally of the allowed arrangements of mines on the component.
+     */
+    public MineCounts countPossibleEdges(List<Tile> component, int maxMines) {
+        return countPossibleEdges(component,componentInfo(component),maxMines,Deadline.NONE);
+    }
+    
+    private MineCounts countPossibleEdges(List<Tile> component, Collection<MineSet> info, int maxMines, Deadline deadline) {
+        EdgeEnumerator search = new EdgeEnumerator(component,info,maxMines);
+        search.setDeadline(deadline);
+        ForkJoinPool pool = (ownerBoard == null ? null : ownerBoard.enumerationPool);
+        MineCounts counts = (pool != null && component.size() >= minParallelTiles ? search.count(pool) : search.count());
+        SolverMetrics.INSTANCE.configurations(counts.totalArrangements(),true);
+        return counts;
+    }
+    
+    /**
+     * Count the possible ways that mines could be placed on each component of this Edge.
+     *
+     * The tallies are kept until the next call, and a component whose MineSets are all unchanged reuses its tally instead of being enumerated again.  Usually a guess and the deductions following it only change a small part of the Edge, so most components can be reused.
+     *
+     * @param   maxMines The largest number of mines which may be placed in any component.
+     * @return  A tally for each component returned by components().
+     */
+    public List<MineCounts> countComponents(int maxMines) {
+        return countComponents(maxMines,Deadline.NONE);
+    }
+    
+    /**
+     * Count the possible ways that mines could be placed on each component of this Edge, giving up at a deadline.
+     *
+     * The components which were finished before the deadline are still kept for the next call, so a later attempt with more time only has to enumerate the rest.
+     *
+     * @param   maxMines The largest number of mines which may be placed in any component.
+     * @param   deadline When to give up.
+     * @return  A tally for each component returned by components().
+     * @throws  CancellationException if the deadline passes before every component is counted.
+     */
+    public List<MineCounts> countComponents(int maxMines, Deadline deadline) {
+        HashMap<Long,CachedCounts> newCache = new HashMap<Long,CachedCounts>();
+        List<MineCounts> result = new ArrayList<MineCounts>();
+        try {
+            for (ArrayList<Tile> component : components()) {
+                Collection<MineSet> info = componentInfo(component);
+                long key = 0;
+                for (MineSet m : info) {
+                    key = 31*key + System.identityHashCode(m);
+                }
+                CachedCounts cached = countCache.get(key);
+                if (cached == null || !cached.matches(info,maxMines,component.size())) {
+                    cached = new CachedCounts(info,maxMines,countPossibleEdges(component,info,maxMines,deadline));
+                }
+                newCache.put(key,cached);
+                result.add(cached.counts);
             }
-            else {
-                t = linkedTiles.poll();
-                keys.remove(t);
+        }
+        catch (CancellationException e) {
+            countCache.putAll(newCache);
+            throw e;
+        }
+        countCache = newCache;
+        return result;
+    }
+    
+    /**
+     * Collect the MineSets which describe some Tiles of this Edge.
+     *
+     * @param   tileOrder The Tiles to collect information about.
+     * @return  Every distinct MineSet containing any of the Tiles, in the order they are first found.
+     */
+    public Collection<MineSet> componentInfo(List<Tile> tileOrder) {
+        Set<MineSet> info = Collections.newSetFromMap(new IdentityHashMap<MineSet,Boolean>());
+        ArrayList<MineSet> result = new ArrayList<MineSet>();
+        for (Tile t : tileOrder) {
+            MineSetList sets = setsForTile.get(t);
+            if (sets == null) continue;
+            for (MineSet m : sets) {
+                if (info.add(m)) {
+                    result.add(m);
+                }
             }
-            tileOrder.add(t);
-            for (MineSet m : setsForTile.get(t)) {
+        }
+        return result;
+    }
+    
+    /**
+     * Find all possible ways that mines could be placed on some of the Tiles of this Edge.  Only the MineSets involving these Tiles are considered, so this should normally be given whole components.
+     * The solver itself counts arrangements without listing them (see countComponents), so this is only kept for callers which want the arrangements themselves.  The list grows with the number of arrangements, so it should only be used on small components.
+     *
+     * @param   tileOrder The Tiles to place mines on.  MineSets are considered in the order their Tiles appear here.
+     * @return A list of MinePossibility objects, each one representing one allowed arrangement of mines on the Tiles of tileOrder.
+     */
+    public Collection<MinePossibility> allPossibleEdges(List<Tile> tileOrder) {
+        MineSetList allInfo = new HashedMineSetList();
+        for (Tile t : tileOrder) {
+            MineSetList sets = setsForTile.get(t);
+            if (sets == null) continue;
+            for (MineSet m : sets) {
                 allInfo.addOrUpdate(m);
-                for (Iterator<Tile> tileIt = m.tileIterator(); tileIt.hasNext();) {
-                    Tile s = tileIt.next();
-                    if (keys.contains(s) && !linkedTiles.contains(s)) {
-                        linkedTiles.add(s);
-                    }
-                }
             }
         }
+        MinePossibility undecided = new MinePossibility(tileOrder);
         LinkedList<MinePossibility> allValid = new LinkedList<MinePossibility>();
-        allValid.add(new MinePossibility(tileOrder));
+        allValid.add(undecided);
         for (MineSet thisInfo : allInfo) {
             LinkedList<MinePossibility> possForThisSet = new LinkedList<MinePossibility>();
             ArrayList<Tile> tilesThisSet = new ArrayList<Tile>(thisInfo.tileCount());
@@ -291,7 +772,7 @@ public class Edge {
             }
             for (int minesToAssign : thisInfo.possibleMines) {
                 for (ArrayList<Tile> tLst : combinations(minesToAssign,tilesThisSet)) {
-                    MinePossibility x = new MinePossibility(tileOrder);
+                    MinePossibility x = new MinePossibility(undecided);
                     for (Tile t : tilesThisSet) {
                         x.set(t,MineState.O);
                     }
@@ -312,6 +793,7 @@ public class Edge {
             }
             allValid = newAllValid;
         }
+        SolverMetrics.INSTANCE.configurations(allValid.size(),false);
         return allValid;
     }
     
@@ -0,0 +1,314 @@
+import java.lang.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A depth-first search through the arrangements of mines on one component of an Edge.  Tiles are assigned one at a time in a fixed order, and after each assignment every MineSet containing that Tile is checked to make sure it can still be satisfied.  Complete arrangements are counted straight into a MineCounts tally instead of being stored, so the memory used does not depend on the number of arrangements.
+ *
+ * The search can also be run on a ForkJoinPool.  Whenever the pool is short of queued work, the task searching a subtree hands the branch with a mine on its next Tile to the pool, with its own copy of the search state and its own tally, and carries on with the branch without one.  Subtrees are split at whatever depth the pool needs them, so one large subtree is shared out instead of being left to a single worker.  Each worker counts into its own tally, however many subtrees it searches, and the tallies are added together at the end.
+ */
+public class EdgeEnumerator {
+    /**
+     * Subtrees with this many Tiles left to assign are always searched by the worker which reaches them, as they are too small to be worth handing to another.
+     */
+    private static final int MIN_SPLIT_TILES = 12;
+    ArrayList<Tile> tiles;
+    /**
+     * For each MineSet, the indices of its Tiles in this component.
+     */
+    private int[][] setTiles;
+    /**
+     * For each MineSet, allowed[s][k] is the number of allowed mine counts from 0 to k-1, so a range of counts can be checked in constant time.
+     */
+    private int[][] allowed;
+    /**
+     * For each Tile, the indices of the MineSets which contain it.
+     */
+    private int[][] tileSets;
+    int maxMines;
+    
+    //search state, which MonteCarloOdds also uses to build its samples one Tile at a time
+    boolean[] mined;
+    private int[] setMines, setUnassigned;
+    int nMines;
+    /**
+     * The search gives up with a CancellationException once this passes.  It is checked every few thousand assignments, so it costs almost nothing.
+     */
+    private Deadline deadline = Deadline.NONE;
+    private int sinceCheck;
+    
+    /**
+     * Prepare to search the arrangements of mines on a component of an Edge.
+     *
+     * @param   tileOrder The Tiles of the component, in the order they will be assigned.  A contiguous order prunes much earlier than a random one.
+     * @param   info The MineSets describing the component.  Any Tiles in these which are not in tileOrder are treated as unconstrained.
+     * @param   maxMines The largest number of mines allowed in the component.  Branches with more mines are abandoned.
+     */
+    public EdgeEnumerator(List<Tile> tileOrder, Collection<MineSet> info, int maxMines) {
+        tiles = new ArrayList<Tile>(tileOrder);
+        this.maxMines = maxMines;
+        HashMap<Tile,Integer> tileFinder = new HashMap<Tile,Integer>(tiles.size()*4/3+1);
+        for (int i = 0; i < tiles.size(); i++) {
+            tileFinder.put(tiles.get(i),i);
+        }
+        setTiles = new int[info.size()][];
+        allowed = new int[info.size()][];
+        ArrayList<ArrayList<Integer>> setsOfTile = new ArrayList<ArrayList<Integer>>(tiles.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            setsOfTile.add(new ArrayList<Integer>(4));
+        }
+        int s = 0;
+        for (MineSet m : info) {
+            ArrayList<Integer> inside = new ArrayList<Integer>(m.tileCount());
+            int outside = 0;
+            for (Iterator<Tile> it = m.tileIterator(); it.hasNext();) {
+                Integer i = tileFinder.get(it.next());
+                if (i == null) {
+                    outside++;
+                }
+                else {
+                    inside.add(i);
+                    setsOfTile.get(i).add(s);
+                }
+            }
+            setTiles[s] = new int[inside.size()];
+            for (int j = 0; j < inside.size(); j++) {
+                setTiles[s][j] = inside.get(j);
+            }
+            boolean[] ok = new boolean[inside.size()+1];
+            for (int n : m.possibleMines) {
+                for (int k = Math.max(0,n-outside); k <= Math.min(n,inside.size()); k++) {
+                    ok[k] = true;
+                }
+            }
+            allowed[s] = new int[ok.length+1];
+            for (int k = 0; k < ok.length; k++) {
+                allowed[s][k+1] = allowed[s][k] + (ok[k] ? 1 : 0);
+            }
+            s++;
+        }
+        tileSets = new int[tiles.size()][];
+        for (int i = 0; i < tiles.size(); i++) {
+            tileSets[i] = new int[setsOfTile.get(i).size()];
+            for (int j = 0; j < tileSets[i].length; j++) {
+                tileSets[i][j] = setsOfTile.get(i).get(j);
+            }
+        }
+    }
+    
+    /**
+     * Create a searcher sharing the MineSet tables of another, with its own copy of the search state.
+     *
+     * @param   other The searcher to copy.
+     */
+    EdgeEnumerator(EdgeEnumerator other) {
+        tiles = other.tiles;
+        setTiles = other.setTiles;
+        allowed = other.allowed;
+        tileSets = other.tileSets;
+        maxMines = other.maxMines;
+        mined = other.mined.clone();
+        setMines = other.setMines.clone();
+        setUnassigned = other.setUnassigned.clone();
+        nMines = other.nMines;
+        deadline = other.deadline;
+    }
+    
+    /**
+     * @param   d When to give up counting.  count() then throws a CancellationException instead of returning an incomplete tally.
+     */
+    public void setDeadline(Deadline d) {
+        deadline = (d == null ? Deadline.NONE : d);
+    }
+    
+    /**
+     * Search every arrangement of mines and count the ones which satisfy all of the MineSets.
+     *
+     * @return  A tally of the allowed arrangements.
+     * @throws  CancellationException if the deadline passes first.
+     */
+    public MineCounts count() {
+        MineCounts counts = new MineCounts(tiles);
+        if (start()) {
+            search(0,counts);
+        }
+        return counts;
+    }
+    
+    /**
+     * Search every arrangement of mines in parallel and count the ones which satisfy all of the MineSets.
+     *
+     * @param   pool The pool to run the search on.
+     * @return  A tally of the allowed arrangements, identical to the one produced by count().
+     * @throws  CancellationException if the deadline passes first.
+     */
+    public MineCounts count(ForkJoinPool pool) {
+        if (!start()) {
+            return new MineCounts(tiles);
+        }
+        ConcurrentHashMap<Thread,MineCounts> tallies = new ConcurrentHashMap<Thread,MineCounts>();
+        pool.invoke(new SearchTask(this,0,tallies));
+        MineCounts counts = new MineCounts(tiles);
+        for (MineCounts c : tallies.values()) {
+            counts.add(c);
+        }
+        return counts;
+    }
+    
+    /**
+     * Reset the search state to have no Tiles assigned.
+     *
+     * @return  false if some MineSet cannot be satisfied at all.
+     */
+    boolean start() {
+        mined = new boolean[tiles.size()];
+        setMines = new int[setTiles.length];
+        setUnassigned = new int[setTiles.length];
+        nMines = 0;
+        for (int s = 0; s < setTiles.length; s++) {
+            setUnassigned[s] = setTiles[s].length;
+            if (!feasible(s)) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * A subtree of the search, starting from a partial assignment of the Tiles before it.
+     */
+    private static class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private EdgeEnumerator state;
+        private int i;
+        private ConcurrentHashMap<Thread,MineCounts> tallies;
+        
+        /**
+         * @param   state A searcher holding the partial assignment, which this task takes ownership of.
+         * @param   i The position of the next Tile to assign.
+         * @param   tallies The tally of each worker taking part in the search.
+         */
+        SearchTask(EdgeEnumerator state, int i, ConcurrentHashMap<Thread,MineCounts> tallies) {
+            this.state = state;
+            this.i = i;
+            this.tallies = tallies;
+        }
+        
+        protected void compute() {
+            MineCounts counts = tallies.get(Thread.currentThread());
+            if (counts == null) {
+                counts = new MineCounts(state.tiles);
+                tallies.put(Thread.currentThread(),counts);
+            }
+            ArrayList<SearchTask> forked = new ArrayList<SearchTask>();
+            search(i,counts,forked);
+            //the latest forks are the smallest and the likeliest to still be in this worker's own queue
+            for (int t = forked.size()-1; t >= 0; t--) {
+                forked.get(t).join();
+            }
+        }
+        
+        /**
+         * Search the subtree as EdgeEnumerator.search does, but fork the branch with a mine on the next Tile as a new task while the pool has few tasks queued.
+         *
+         * @param   i The position of the next Tile to assign.
+         * @param   counts The tally to add complete arrangements to.
+         * @param   forked The tasks forked so far, to be joined once the rest of the subtree is searched.
+         */
+        private void search(int i, MineCounts counts, ArrayList<SearchTask> forked) {
+            if (state.tiles.size()-i <= MIN_SPLIT_TILES) {
+                state.search(i,counts);
+                return;
+            }
+            if (++state.sinceCheck == 4096) {
+                state.sinceCheck = 0;
+                state.deadline.check();
+            }
+            boolean mine = (state.nMines < state.maxMines);
+            if (mine && getSurplusQueuedTaskCount() < 2) {
+                EdgeEnumerator child = new EdgeEnumerator(state);
+                if (child.assign(i,true)) {
+                    SearchTask t = new SearchTask(child,i+1,tallies);
+                    t.fork();
+                    forked.add(t);
+                }
+                mine = false;
+            }
+            if (state.assign(i,false)) {
+                search(i+1,counts,forked);
+            }
+            state.unassign(i);
+            if (mine) {
+                if (state.assign(i,true)) {
+                    search(i+1,counts,forked);
+                }
+                state.unassign(i);
+            }
+        }
+    }
+    
+    /**
+     * Try both states for the Tile at a given position, and everything after it.
+     *
+     * @param   i The position of the next Tile to assign.
+     * @param   counts The tally to add complete arrangements to.
+     */
+    private void search(int i, MineCounts counts) {
+        if (i == tiles.size()) {
+            counts.add(mined,nMines);
+            return;
+        }
+        if (++sinceCheck == 4096) {
+            sinceCheck = 0;
+            deadline.check();
+        }
+        for (int state = 0; state < 2; state++) {
+            if (state == 1 && nMines >= maxMines) break;
+            if (assign(i,state == 1)) {
+                search(i+1,counts);
+            }
+            unassign(i);
+        }
+    }
+    
+    /**
+     * Assign a state to a Tile and check that all of its MineSets can still be satisfied.
+     *
+     * @param   i The position of the Tile.
+     * @param   mine true to place a mine on the Tile.
+     * @return  true if no MineSet has been contradicted.
+     */
+    boolean assign(int i, boolean mine) {
+        mined[i] = mine;
+        if (mine) nMines++;
+        boolean ok = true;
+        for (int s : tileSets[i]) {
+            setUnassigned[s]--;
+            if (mine) setMines[s]++;
+            ok = ok && feasible(s);
+        }
+        return ok;
+    }
+    
+    /**
+     * Undo the assignment of a Tile.
+     *
+     * @param   i The position of the Tile.
+     */
+    void unassign(int i) {
+        for (int s : tileSets[i]) {
+            setUnassigned[s]++;
+            if (mined[i]) setMines[s]--;
+        }
+        if (mined[i]) nMines--;
+        mined[i] = false;
+    }
+    
+    /**
+     * @param   s The index of a MineSet.
+     * @return  true if some allowed number of mines for the MineSet is reachable from the current partial assignment.
+     */
+    private boolean feasible(int s) {
+        return allowed[s][setMines[s]+setUnassigned[s]+1] > allowed[s][setMines[s]];
+    }
+}
\ No newline at end of file
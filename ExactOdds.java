@@ -0,0 +1,114 @@
+import java.lang.*;
+import java.util.*;
+import java.math.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * An OddsCalculator which does all of its weighting with BigDecimal.  This is slow when the bulk is large, but is kept as a reference for checking faster methods.
+ */
+public class ExactOdds implements OddsCalculator {
+    
+    /**
+     * Find the probability that each Tile has a mine.
+     *
+     * The number of ways to place M mines in the whole edge is the convolution of the components' histograms, and each of those is weighted by the number of ways to place the remaining mines in the bulk.
+     *
+     * @param   components The tallies of each independent component of the Edge.
+     * @param   bulkSize The number of unknown Tiles which are not in the Edge.
+     * @param   remainingN The number of mines in the Edge and bulk together.
+     * @param   probMined A map to be filled with the probability that each edge Tile has a mine.  The null key is used for any one Tile in the bulk.
+     * @return  false if no arrangement of mines is consistent with the components.
+     */
+    public boolean findOdds(List<MineCounts> components, int bulkSize, int remainingN, Map<Tile,Double> probMined) {
+        int nComp = components.size();
+        //prefix.get(i) is the histogram for components 0..i-1, suffix.get(i) for components i..nComp-1
+        ArrayList<BigDecimal[]> prefix = new ArrayList<BigDecimal[]>(nComp+1), suffix = new ArrayList<BigDecimal[]>(nComp+1);
+        BigDecimal[] empty = {BigDecimal.ONE};
+        prefix.add(empty);
+        for (int c = 0; c < nComp; c++) {
+            prefix.add(convolve(prefix.get(c),histogram(components.get(c),remainingN),remainingN));
+        }
+        for (int c = 0; c <= nComp; c++) {
+            suffix.add(empty);
+        }
+        for (int c = nComp-1; c >= 0; c--) {
+            suffix.set(c,convolve(histogram(components.get(c),remainingN),suffix.get(c+1),remainingN));
+        }
+        BigDecimal[] bulkStates = new BigDecimal[remainingN+1];
+        for (int m = 0; m <= remainingN; m++) {
+            bulkStates[m] = Board.binomCoeff(bulkSize,remainingN-m);
+        }
+        BigDecimal totalMicro = BigDecimal.ZERO, bulkMined = BigDecimal.ZERO;
+        BigDecimal[] all = prefix.get(nComp);
+        for (int m = 0; m < all.length; m++) {
+            BigDecimal states = all[m].multiply(bulkStates[m],MathContext.DECIMAL64);
+            totalMicro = totalMicro.add(states,MathContext.DECIMAL64);
+            if (bulkSize > 0) {
+                bulkMined = bulkMined.add(states.multiply(new BigDecimal(remainingN-m),MathContext.DECIMAL64).divide(new BigDecimal(bulkSize),MathContext.DECIMAL64),MathContext.DECIMAL64);
+            }
+        }
+        if (totalMicro.signum() == 0) {
+            return false;
+        }
+        if (bulkSize > 0) {
+            probMined.put(null,bulkMined.divide(totalMicro,MathContext.DECIMAL64).doubleValue());
+        }
+        for (int c = 0; c < nComp; c++) {
+            MineCounts comp = components.get(c);
+            BigDecimal[] others = convolve(prefix.get(c),suffix.get(c+1),remainingN);
+            //weight[m] is the number of states for everything outside this component, given m mines inside it
+            BigDecimal[] weight = new BigDecimal[Math.min(comp.maxMines(),remainingN)+1];
+            for (int m = 0; m < weight.length; m++) {
+                weight[m] = BigDecimal.ZERO;
+                for (int o = 0; o < others.length && m+o <= remainingN; o++) {
+                    weight[m] = weight[m].add(others[o].multiply(bulkStates[m+o],MathContext.DECIMAL64),MathContext.DECIMAL64);
+                }
+            }
+            for (int i = 0; i < comp.size(); i++) {
+                BigDecimal mined = BigDecimal.ZERO;
+                for (int m = 0; m < weight.length; m++) {
+                    long n = comp.minedArrangements(i,m);
+                    if (n > 0) {
+                        mined = mined.add(weight[m].multiply(new BigDecimal(n),MathContext.DECIMAL64),MathContext.DECIMAL64);
+                    }
+                }
+                probMined.put(comp.getTile(i),mined.divide(totalMicro,MathContext.DECIMAL64).doubleValue());
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @param   counts The tally for one component.
+     * @param   maxMines The largest number of mines of interest.
+     * @return  The number of arrangements with each number of mines, limited to at most maxMines mines.
+     */
+    private static BigDecimal[] histogram(MineCounts counts, int maxMines) {
+        BigDecimal[] result = new BigDecimal[Math.min(counts.maxMines(),maxMines)+1];
+        for (int m = 0; m < result.length; m++) {
+            result[m] = new BigDecimal(counts.arrangements(m));
+        }
+        return result;
+    }
+    
+    /**
+     * Convolve two histograms of mine counts.
+     *
+     * @param   a The number of states with each number of mines in one group of Tiles.
+     * @param   b The number of states with each number of mines in another group of Tiles.
+     * @param   maxMines The largest number of mines of interest.  Anything with more is ignored.
+     * @return  The number of states with each number of mines in both groups together.
+     */
+    private static BigDecimal[] convolve(BigDecimal[] a, BigDecimal[] b, int maxMines) {
+        BigDecimal[] result = new BigDecimal[Math.min(a.length+b.length-2,maxMines)+1];
+        Arrays.fill(result,BigDecimal.ZERO);
+        for (int i = 0; i < a.length; i++) {
+            if (a[i].signum() == 0) continue;
+            for (int j = 0; j < b.length && i+j < result.length; j++) {
+                result[i+j] = result[i+j].add(a[i].multiply(b[j],MathContext.DECIMAL64),MathContext.DECIMAL64);
+            }
+        }
+        return result;
+    }
+}
\ No newline at end of file
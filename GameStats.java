@@ -0,0 +1,151 @@
+import java.lang.*;
+import java.util.*;
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * Totals collected over many games of Minesweeper.  Games running on different threads can record their results at the same time: each total is a LongAdder, which gives every thread its own cell to add to instead of making them wait for each other, and the cells are only summed when a summary is written.
+ */
+public class GameStats {
+    private LongAdder games = new LongAdder(), wins = new LongAdder(), errors = new LongAdder();
+    private LongAdder guesses = new LongAdder(), steps = new LongAdder(), nanos = new LongAdder();
+    private volatile long slowestNanos = -1;
+    private long slowestSeed;
+    private volatile Throwable firstError;
+    private long firstErrorSeed;
+    
+    /**
+     * Record the result of one game.
+     *
+     * @param   won true if the game was won.
+     * @param   nGuesses The number of guesses made.
+     * @param   nSteps The number of MineSet comparisons made.
+     * @param   time The time taken to play the game, in nanoseconds.
+     * @param   seed The seed the game's Board was created with.  The seed of the slowest game is kept so that it can be replayed.
+     */
+    public void record(boolean won, long nGuesses, long nSteps, long time, long seed) {
+        games.increment();
+        if (won) wins.increment();
+        guesses.add(nGuesses);
+        steps.add(nSteps);
+        nanos.add(time);
+        if (time > slowestNanos) { //only a new slowest game needs the lock, which is rare
+            synchronized (this) {
+                if (time > slowestNanos) {
+                    slowestSeed = seed;
+                    slowestNanos = time;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Record a game which could not be finished because of an unexpected exception or error.  The first one recorded is kept with the seed of its game, so that it can be reported and replayed.
+     *
+     * @param   e What was thrown.
+     * @param   seed The seed the game's Board was created with.
+     */
+    public void recordError(Throwable e, long seed) {
+        errors.increment();
+        if (firstError == null) {
+            synchronized (this) {
+                if (firstError == null) {
+                    firstErrorSeed = seed;
+                    firstError = e;
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return  The first exception or error passed to recordError, or null if there has been none.
+     */
+    public Throwable firstError() {
+        return firstError;
+    }
+    
+    /**
+     * @return  The seed of the game which threw firstError.
+     */
+    public synchronized long firstErrorSeed() {
+        return firstErrorSeed;
+    }
+    
+    /**
+     * @return  The number of games which could not be finished.
+     */
+    public long errors() {
+        return errors.sum();
+    }
+    
+    /**
+     * @return  The number of games recorded, not including errors.
+     */
+    public long games() {
+        return games.sum();
+    }
+    
+    /**
+     * @return  The number of games won.
+     */
+    public long wins() {
+        return wins.sum();
+    }
+    
+    /**
+     * Write a summary of the recorded games as a CSV header and a single row, or as a JSON object.
+     *
+     * @param   out The stream to write to.
+     * @param   json true to write JSON, false to write CSV.
+     * @param   lattice The type of board played.
+     * @param   width The width of the boards.
+     * @param   height The height of the boards.
+     * @param   mines The number of mines on each board.
+     * @param   wallNanos The total time taken to play all of the games, in nanoseconds.
+     */
+    public void printSummary(PrintStream out, boolean json, String lattice, int width, int height, int mines, long wallNanos) {
+        long g = games.sum(), w = wins.sum();
+        long slowSeed;
+        double slowMillis;
+        synchronized (this) {
+            slowSeed = slowestSeed;
+            slowMillis = Math.max(slowestNanos,0)/1e6;
+        }
+        String[] keys = {"lattice","width","height","mines","games","wins","errors","winRate","guesses","steps","meanGameMillis","slowestGameMillis","slowestSeed","wallSeconds","gamesPerSecond"};
+        Object[] values = {lattice, width, height, mines, g, w, errors.sum(),
+                           ratio(w,g), guesses.sum(), steps.sum(), ratio(nanos.sum(),g)/1e6, slowMillis, slowSeed, wallNanos/1e9, ratio(g,wallNanos)*1e9};
+        StringBuilder line = new StringBuilder();
+        if (json) {
+            line.append('{');
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0) line.append(',');
+                line.append('"').append(keys[i]).append("\":");
+                if (values[i] instanceof String) {
+                    line.append('"').append(values[i]).append('"');
+                }
+                else {
+                    line.append(values[i]);
+                }
+            }
+            line.append('}');
+        }
+        else {
+            out.println(String.join(",",keys));
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) line.append(',');
+                line.append(values[i]);
+            }
+        }
+        out.println(line);
+        out.flush();
+    }
+    
+    /**
+     * @return  a/b, or 0 if b is 0.
+     */
+    private static double ratio(double a, double b) {
+        return (b == 0 ? 0 : a/b);
+    }
+}
\ No newline at end of file
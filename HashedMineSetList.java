@@ -0,0 +1,258 @@
+import java.lang.*;
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A MineSetList which also keeps an index of its MineSets by the hash of their Tiles.  Finding a MineSet with given Tiles only has to compare against MineSets with the same hash, so containsTiles and addOrUpdate take constant expected time instead of searching the whole list.  The list order is still the order of insertion, so this works as a queue with poll.
+ *
+ * The index relies on MineSet.tileHash, which changes when a MineSet's Tiles change (for example through removeKnown).  A MineSet which is changed while it is in this list is re-indexed the next time it is passed to containsTiles or addOrUpdate, or when rekey is called.
+ */
+public class HashedMineSetList extends MineSetList {
+    private HashMap<Integer,ArrayList<MineSet>> buckets;
+    private IdentityHashMap<MineSet,Entry> entries;
+    
+    /**
+     * The hash a MineSet was indexed under, and the number of times it appears in the list.
+     */
+    private static class Entry {
+        int key, copies;
+        Entry(int k) {
+            key = k;
+        }
+    }
+    
+    /**
+     * Create an empty HashedMineSetList.
+     */
+    public HashedMineSetList() {
+        super();
+        buckets = new HashMap<Integer,ArrayList<MineSet>>();
+        entries = new IdentityHashMap<MineSet,Entry>();
+    }
+    
+    /**
+     * Create a HashedMineSetList containing a single MineSet.
+     *
+     * @param init A MineSet to place in the new list.
+     */
+    public HashedMineSetList(MineSet init) {
+        this();
+        this.add(init);
+    }
+    
+    /**
+     * Find the MineSet in this collection with the same tiles as a given MineSet.
+     *
+     * @param   x The MineSet to search for.
+     * @return  A MineSet in this list with the same Tiles as x, or null if no such MineSet exists.
+     */
+    public MineSet containsTiles(MineSet x) {
+        if (entries.containsKey(x)) {
+            rekey(x);
+        }
+        ArrayList<MineSet> bucket = buckets.get(x.tileHash());
+        if (bucket != null) {
+            for (MineSet y : bucket) {
+                if (x.equalTiles(y)) {
+                    return y;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Move a MineSet to the right place in the index after its Tiles have changed.
+     *
+     * @param   x A MineSet in this list.
+     */
+    public void rekey(MineSet x) {
+        Entry e = entries.get(x);
+        if (e == null) return;
+        int newKey = x.tileHash();
+        if (newKey == e.key) return;
+        ArrayList<MineSet> oldBucket = buckets.get(e.key);
+        for (Iterator<MineSet> it = oldBucket.iterator(); it.hasNext();) {
+            if (it.next() == x) it.remove();
+        }
+        if (oldBucket.isEmpty()) buckets.remove(e.key);
+        e.key = newKey;
+        ArrayList<MineSet> newBucket = bucket(newKey);
+        for (int i = 0; i < e.copies; i++) {
+            newBucket.add(x);
+        }
+    }
+    
+    private ArrayList<MineSet> bucket(int key) {
+        ArrayList<MineSet> b = buckets.get(key);
+        if (b == null) {
+            b = new ArrayList<MineSet>(2);
+            buckets.put(key,b);
+        }
+        return b;
+    }
+    
+    /**
+     * Record that a MineSet has been put in the list.
+     */
+    private void indexAdd(MineSet x) {
+        Entry e = entries.get(x);
+        if (e == null) {
+            e = new Entry(x.tileHash());
+            entries.put(x,e);
+        }
+        e.copies++;
+        bucket(e.key).add(x);
+    }
+    
+    /**
+     * Record that a MineSet has been taken out of the list.
+     */
+    private void indexRemove(Object o) {
+        Entry e = entries.get(o);
+        if (e == null) return;
+        ArrayList<MineSet> b = buckets.get(e.key);
+        for (int i = 0; i < b.size(); i++) {
+            if (b.get(i) == o) {
+                b.remove(i);
+                break;
+            }
+        }
+        if (b.isEmpty()) buckets.remove(e.key);
+        if (--e.copies == 0) entries.remove(o);
+    }
+    
+    public boolean add(MineSet x) {
+        super.add(x);
+        indexAdd(x);
+        return true;
+    }
+    
+    public void add(int i, MineSet x) {
+        super.add(i,x);
+        indexAdd(x);
+    }
+    
+    public void addFirst(MineSet x) {
+        super.addFirst(x);
+        indexAdd(x);
+    }
+    
+    public void addLast(MineSet x) {
+        super.addLast(x);
+        indexAdd(x);
+    }
+    
+    public boolean addAll(Collection<? extends MineSet> c) {
+        return addAll(size(),c);
+    }
+    
+    public boolean addAll(int i, Collection<? extends MineSet> c) {
+        ArrayList<MineSet> toAdd = new ArrayList<MineSet>(c);
+        super.addAll(i,toAdd);
+        for (MineSet x : toAdd) {
+            indexAdd(x);
+        }
+        return !toAdd.isEmpty();
+    }
+    
+    public MineSet set(int i, MineSet x) {
+        MineSet old = super.set(i,x);
+        indexRemove(old);
+        indexAdd(x);
+        return old;
+    }
+    
+    public MineSet poll() {
+        MineSet x = super.poll();
+        indexRemove(x);
+        return x;
+    }
+    
+    public MineSet pollFirst() {
+        return poll();
+    }
+    
+    public MineSet pollLast() {
+        MineSet x = super.pollLast();
+        indexRemove(x);
+        return x;
+    }
+    
+    public MineSet removeFirst() {
+        MineSet x = super.removeFirst();
+        indexRemove(x);
+        return x;
+    }
+    
+    public MineSet removeLast() {
+        MineSet x = super.removeLast();
+        indexRemove(x);
+        return x;
+    }
+    
+    public MineSet remove(int i) {
+        MineSet x = super.remove(i);
+        indexRemove(x);
+        return x;
+    }
+    
+    public boolean remove(Object o) {
+        if (super.remove(o)) {
+            indexRemove(o);
+            return true;
+        }
+        return false;
+    }
+    
+    public boolean removeLastOccurrence(Object o) {
+        if (super.removeLastOccurrence(o)) {
+            indexRemove(o);
+            return true;
+        }
+        return false;
+    }
+    
+    public void clear() {
+        super.clear();
+        buckets.clear();
+        entries.clear();
+    }
+    
+    public ListIterator<MineSet> listIterator(int i) {
+        final ListIterator<MineSet> it = super.listIterator(i);
+        return new ListIterator<MineSet>() {
+            private MineSet last;
+            public boolean hasNext() { return it.hasNext(); }
+            public MineSet next() { return last = it.next(); }
+            public boolean hasPrevious() { return it.hasPrevious(); }
+            public MineSet previous() { return last = it.previous(); }
+            public int nextIndex() { return it.nextIndex(); }
+            public int previousIndex() { return it.previousIndex(); }
+            public void remove() {
+                it.remove();
+                indexRemove(last);
+            }
+            public void set(MineSet x) {
+                it.set(x);
+                indexRemove(last);
+                indexAdd(x);
+                last = x;
+            }
+            public void add(MineSet x) {
+                it.add(x);
+                indexAdd(x);
+            }
+        };
+    }
+    
+    public Iterator<MineSet> descendingIterator() {
+        final ListIterator<MineSet> it = listIterator(size());
+        return new Iterator<MineSet>() {
+            public boolean hasNext() { return it.hasPrevious(); }
+            public MineSet next() { return it.previous(); }
+            public void remove() { it.remove(); }
+        };
+    }
+}
\ No newline at end of file
@@ -19,35 +19,38 @@ public class HexBoard extends TwoDBoard implements TextBoard {
      * @param   probInfo Set to true to print guessing information to stdout.
      */
     public HexBoard(int width, int height, int n, boolean safeStart, boolean probInfo) {
-        super(width, height, n);
-        this.printProbability = probInfo;
-        int nMines = 0;
-        ArrayList<ArrayList<Boolean>> mineGrid = setRandomMines(N);
-        grid = initGrid(width, height, Tile.class);
-        remainingTiles = new HashSet<Tile>(width*height*4/3+1);
-        completedTiles = new LinkedList<Tile>();
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                int nAdjacent;
-                if (getGrid(i,j,mineGrid)) {
-                    nAdjacent = -1;
-                }
-                else {
-                    nAdjacent = getAdjacent(i,j,mineGrid);
-                }
-                SquareTile newTile = new SquareTile(getGrid(i,j,mineGrid),false,nAdjacent,i,j);
-                setGrid(i,j,newTile);
-                remainingTiles.add(newTile);
-            }
-        }
-        linkNeighbours();
-        if (safeStart) {
-            Tile toStart = pickRandomStart(mineGrid);
-            if (toStart != null) {
-                toStart.reveal();
-                addWorkingTile(toStart);
-            }
-        }
+        this(width, height, n, safeStart, probInfo, new SplittableRandom());
+    }
+    
+    /**
+     * Create a board with a hexagonal grid
+     *
+     * @param   width The Board's width
+     * @param   height The Board's height
+     * @param   n The number of mines to be placed
+     * @param   safeStart Set to true to pick a clear starting tile which will be revealed initially.
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for placing mines and breaking ties between equally good guesses.  Boards created with identically seeded sources are identical and are played identically.
+     */
+    public HexBoard(int width, int height, int n, boolean safeStart, boolean probInfo, SplittableRandom random) {
+        this(width, height, n, safeStart, probInfo, random, false);
+    }
+    
+    /**
+     * Create a board with a hexagonal grid
+     *
+     * @param   width The Board's width
+     * @param   height The Board's height
+     * @param   n The number of mines to be placed
+     * @param   safeStart Set to true to pick a clear starting tile which will be revealed initially.
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for placing mines and breaking ties between equally good guesses.  Boards created with identically seeded sources are identical and are played identically.
+     * @param   compact Set to true to pack the state of each tile into a byte instead of keeping a Tile object for it.  Tiles are then created as views when they are needed, which allows much larger boards.
+     */
+    public HexBoard(int width, int height, int n, boolean safeStart, boolean probInfo, SplittableRandom random, boolean compact) {
+        super(width, height, n, random);
+        printGuesses(probInfo);
+        generateTiles(safeStart,compact);
     }
     
     /**
@@ -59,8 +62,21 @@ public class HexBoard extends TwoDBoard implements TextBoard {
      * @param   probInfo Set to true to print guessing information to stdout.
      */
     public HexBoard(char[][] file, boolean probInfo) {
-        super(file[0].length, file.length, TextBoard.mineCount(file));
-        this.printProbability = probInfo;
+        this(file, probInfo, new SplittableRandom());
+    }
+    
+    /**
+     * Create a Board from a text file.
+     *
+     * At present, the spaces that are inserted in the output to give a hexagonal grid should be removed.  This may change in future versions.
+     *
+     * @param   file An array containing the contents of the file as produced by TextBoard.readBoard(fileName).
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for breaking ties between equally good guesses.
+     */
+    public HexBoard(char[][] file, boolean probInfo, SplittableRandom random) {
+        super(file[0].length, file.length, TextBoard.mineCount(file), random);
+        printGuesses(probInfo);
         if (checkCounts(file)) {
             System.err.println("The file contained inconsistent adjacent mine counts.  Corrected counts will be used instead.");
         }
@@ -81,31 +97,52 @@ public class HexBoard extends TwoDBoard implements TextBoard {
                 }
             }
         }
+        numberTiles();
         linkNeighbours();
-        for (Tile toStart : startTiles) {
-            addWorkingTile(toStart);
-        }
+        addWorkingTiles(startTiles);
     }
     
     /**
-     * Get a list of all grid points that are neighbours of a given point.
+     * Create a board with a hexagonal grid saved as a binary board.
+     *
+     * @param   file The contents of the file as produced by BinaryBoard.read(fileName).
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for breaking ties between equally good guesses.
+     * @param   compact Set to true to pack the state of each tile into a byte instead of keeping a Tile object for it.
+     */
+    public HexBoard(BinaryBoard file, boolean probInfo, SplittableRandom random, boolean compact) {
+        super(file.width, file.height, file.mines, random);
+        printGuesses(probInfo);
+        loadTiles(file,compact);
+    }
+    
+    /**
+     * Find the neighbours of a grid point as flat indices x+y*width.
      *
      * @param i The x coordinate of the site to find neighbours of.
-     * @param i The y coordinate of the site to find neighbours of.
-     * @return A list of GridCoordinate objects representing the neighbours.
+     * @param j The y coordinate of the site to find neighbours of.
+     * @param out An array with room for at least maxNeighbours() indices, which the neighbours are written to.
+     * @return The number of neighbours written to out.
      */
-    public LinkedList<GridCoordinate> neighbourCoordinates(int i, int j) {
-        LinkedList<GridCoordinate> result = new LinkedList<GridCoordinate>();
+    public int neighbourIndices(int i, int j, int[] out) {
+        int n = 0;
         for (int y = j-1; y < j+2; y++) {
             if (y < 0 || y >= height) continue;
             for (int x = (y==j ? i-1 : i-1+(j%2)); x < (y==j ? i+2 : i+1+(j%2)); x++) {
                 if (x < 0 || x >= width) continue;
                 if (x != i || y != j) {
-                    result.add(new GridCoordinate(x,y));
+                    out[n++] = x+y*width;
                 }
             }
         }
-        return result;
+        return n;
+    }
+    
+    /**
+     * @return 6, the number of neighbours of a hexagon.
+     */
+    public int maxNeighbours() {
+        return 6;
     }
     
     /**
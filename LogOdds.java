@@ -0,0 +1,199 @@
+import java.lang.*;
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * An OddsCalculator which works with the logarithms of the numbers of states in double precision.  Binomial coefficients come from a table of log factorials which is built once for the size of the Board, so each weight is a few additions instead of a long BigDecimal product.  Every sum is scaled by its largest term before exponentiating, so nothing underflows even when the bulk is very large.
+ */
+public class LogOdds implements OddsCalculator {
+    /**
+     * The largest table of log factorials that will be built.  Beyond this Stirling's series is accurate to double precision.
+     */
+    public static final int maxTable = 1<<20;
+    private double[] logFactorial;
+    
+    /**
+     * A histogram of numbers of states, stored as values*exp(logScale) with the largest value equal to 1.
+     */
+    private static class Scaled {
+        double[] values;
+        double logScale;
+        Scaled(double[] v, double ls) {
+            values = v;
+            logScale = ls;
+        }
+    }
+    
+    /**
+     * Create a calculator for a Board of a given size.
+     *
+     * @param   nTiles The number of Tiles on the Board, which is the largest bulk that can occur.
+     */
+    public LogOdds(int nTiles) {
+        logFactorial = new double[Math.min(Math.max(nTiles,1),maxTable)+1];
+        for (int i = 2; i < logFactorial.length; i++) {
+            logFactorial[i] = logFactorial[i-1] + Math.log(i);
+        }
+    }
+    
+    /**
+     * @param   n A non-negative integer.
+     * @return  The natural logarithm of n!.
+     */
+    public double logFactorial(int n) {
+        if (n < logFactorial.length) {
+            return logFactorial[n];
+        }
+        double x = n;
+        return x*Math.log(x) - x + 0.5*Math.log(2*Math.PI*x) + 1/(12*x) - 1/(360*x*x*x);
+    }
+    
+    /**
+     * @param   n The n in n choose k.
+     * @param   k The k in n choose k.
+     * @return  The natural logarithm of n choose k, or negative infinity if it is zero.
+     */
+    public double logBinomCoeff(int n, int k) {
+        if (k < 0 || k > n) return Double.NEGATIVE_INFINITY;
+        return logFactorial(n) - logFactorial(k) - logFactorial(n-k);
+    }
+    
+    /**
+     * Find the probability that each Tile has a mine.
+     *
+     * @param   components The tallies of each independent component of the Edge.
+     * @param   bulkSize The number of unknown Tiles which are not in the Edge.
+     * @param   remainingN The number of mines in the Edge and bulk together.
+     * @param   probMined A map to be filled with the probability that each edge Tile has a mine.  The null key is used for any one Tile in the bulk.
+     * @return  false if no arrangement of mines is consistent with the components.
+     */
+    public boolean findOdds(List<MineCounts> components, int bulkSize, int remainingN, Map<Tile,Double> probMined) {
+        int nComp = components.size();
+        Scaled[] hists = new Scaled[nComp];
+        for (int c = 0; c < nComp; c++) {
+            hists[c] = histogram(components.get(c),remainingN);
+            if (hists[c] == null) return false;
+        }
+        ArrayList<Scaled> prefix = new ArrayList<Scaled>(nComp+1), suffix = new ArrayList<Scaled>(nComp+1);
+        Scaled empty = new Scaled(new double[] {1},0);
+        prefix.add(empty);
+        for (int c = 0; c < nComp; c++) {
+            prefix.add(convolve(prefix.get(c),hists[c],remainingN));
+        }
+        for (int c = 0; c <= nComp; c++) {
+            suffix.add(empty);
+        }
+        for (int c = nComp-1; c >= 0; c--) {
+            suffix.set(c,convolve(hists[c],suffix.get(c+1),remainingN));
+        }
+        double[] logBulk = new double[remainingN+1];
+        for (int m = 0; m <= remainingN; m++) {
+            logBulk[m] = logBinomCoeff(bulkSize,remainingN-m);
+        }
+        Scaled all = prefix.get(nComp);
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for (int m = 0; m < all.values.length; m++) {
+            if (all.values[m] > 0) {
+                maxLog = Math.max(maxLog,Math.log(all.values[m])+logBulk[m]);
+            }
+        }
+        if (maxLog == Double.NEGATIVE_INFINITY) {
+            return false;
+        }
+        double total = 0, bulkMined = 0;
+        for (int m = 0; m < all.values.length; m++) {
+            if (all.values[m] > 0 && logBulk[m] > Double.NEGATIVE_INFINITY) {
+                double states = all.values[m]*Math.exp(logBulk[m]-maxLog);
+                total += states;
+                if (bulkSize > 0) bulkMined += states*(remainingN-m)/bulkSize;
+            }
+        }
+        double logTotal = all.logScale + maxLog + Math.log(total);
+        if (bulkSize > 0) {
+            probMined.put(null,bulkMined/total);
+        }
+        for (int c = 0; c < nComp; c++) {
+            MineCounts comp = components.get(c);
+            Scaled others = convolve(prefix.get(c),suffix.get(c+1),remainingN);
+            int len = Math.min(comp.maxMines(),remainingN)+1;
+            double scale = Double.NEGATIVE_INFINITY;
+            for (int m = 0; m < len; m++) {
+                if (comp.arrangements(m) == 0) continue;
+                for (int o = 0; o < others.values.length && m+o <= remainingN; o++) {
+                    if (others.values[o] > 0) {
+                        scale = Math.max(scale,Math.log(others.values[o])+logBulk[m+o]);
+                    }
+                }
+            }
+            //weight[m] is proportional to the number of states for everything outside this component, given m mines inside it
+            double[] weight = new double[len];
+            for (int m = 0; m < len && scale > Double.NEGATIVE_INFINITY; m++) {
+                for (int o = 0; o < others.values.length && m+o <= remainingN; o++) {
+                    if (others.values[o] > 0 && logBulk[m+o] > Double.NEGATIVE_INFINITY) {
+                        weight[m] += others.values[o]*Math.exp(logBulk[m+o]-scale);
+                    }
+                }
+            }
+            for (int i = 0; i < comp.size(); i++) {
+                double mined = 0;
+                for (int m = 0; m < len; m++) {
+                    long n = comp.minedArrangements(i,m);
+                    if (n > 0) {
+                        mined += n*weight[m];
+                    }
+                }
+                probMined.put(comp.getTile(i),(mined > 0 ? Math.exp(others.logScale+scale+Math.log(mined)-logTotal) : 0.0));
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @param   counts The tally for one component.
+     * @param   maxMines The largest number of mines of interest.
+     * @return  The scaled number of arrangements with each number of mines, limited to at most maxMines mines, or null if there are none.
+     */
+    private static Scaled histogram(MineCounts counts, int maxMines) {
+        double[] values = new double[Math.min(counts.maxMines(),maxMines)+1];
+        double max = 0;
+        for (int m = 0; m < values.length; m++) {
+            values[m] = counts.arrangements(m);
+            max = Math.max(max,values[m]);
+        }
+        if (max == 0) return null;
+        for (int m = 0; m < values.length; m++) {
+            values[m] /= max;
+        }
+        return new Scaled(values,Math.log(max));
+    }
+    
+    /**
+     * Convolve two scaled histograms of mine counts.
+     *
+     * @param   a The states with each number of mines in one group of Tiles.
+     * @param   b The states with each number of mines in another group of Tiles.
+     * @param   maxMines The largest number of mines of interest.  Anything with more is ignored.
+     * @return  The states with each number of mines in both groups together.
+     */
+    private static Scaled convolve(Scaled a, Scaled b, int maxMines) {
+        double[] result = new double[Math.min(a.values.length+b.values.length-2,maxMines)+1];
+        for (int i = 0; i < a.values.length; i++) {
+            if (a.values[i] == 0) continue;
+            for (int j = 0; j < b.values.length && i+j < result.length; j++) {
+                result[i+j] += a.values[i]*b.values[j];
+            }
+        }
+        double max = 0;
+        for (double r : result) {
+            max = Math.max(max,r);
+        }
+        if (max == 0) {
+            return new Scaled(result,0);
+        }
+        for (int m = 0; m < result.length; m++) {
+            result[m] /= max;
+        }
+        return new Scaled(result,a.logScale+b.logScale+Math.log(max));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+import java.lang.*;
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A tally of the possible arrangements of mines on one independent component of an Edge.  Rather than keeping every arrangement, this only records how many arrangements place a given number of mines in the component, and how many of those arrangements place a mine on each of its Tiles.  That is all the information needed to combine independent components and find the probability that each Tile has a mine.
+ */
+public class MineCounts {
+    private ArrayList<Tile> tiles;
+    private HashMap<Tile,Integer> tileFinder;
+    private long[] arrangements;
+    private long[][] minedArrangements;
+    
+    /**
+     * Create an empty tally for a collection of Tiles.
+     *
+     * @param   component The Tiles whose arrangements will be counted.
+     */
+    public MineCounts(Collection<Tile> component) {
+        tiles = new ArrayList<Tile>(component);
+        tileFinder = new HashMap<Tile,Integer>(tiles.size()*4/3+1);
+        for (int i = 0; i < tiles.size(); i++) {
+            tileFinder.put(tiles.get(i),i);
+        }
+        arrangements = new long[1];
+        minedArrangements = new long[tiles.size()][1];
+    }
+    
+    /**
+     * Count one more arrangement of mines.
+     *
+     * @param   x An arrangement of mines on (at least) the Tiles of this component.  Tiles not set to MineState.X are treated as clear.
+     */
+    public void add(MinePossibility x) {
+        boolean[] mined = new boolean[tiles.size()];
+        int minesInComponent = 0;
+        for (int i = 0; i < tiles.size(); i++) {
+            if (x.get(tiles.get(i)) == MineState.X) {
+                mined[i] = true;
+                minesInComponent++;
+            }
+        }
+        add(mined,minesInComponent);
+    }
+    
+    /**
+     * Count one more arrangement of mines.
+     *
+     * @param   mined For each Tile of this component (by index), true if the arrangement places a mine there.
+     * @param   minesInComponent The number of true entries in mined.
+     */
+    public void add(boolean[] mined, int minesInComponent) {
+        ensureMines(minesInComponent);
+        arrangements[minesInComponent]++;
+        for (int i = 0; i < mined.length; i++) {
+            if (mined[i]) {
+                minedArrangements[i][minesInComponent]++;
+            }
+        }
+    }
+    
+    /**
+     * Add the arrangements counted by another tally of the same Tiles to this one.
+     *
+     * @param   other A tally of different arrangements of the same component, with its Tiles in the same order.
+     */
+    public void add(MineCounts other) {
+        ensureMines(other.maxMines());
+        for (int n = 0; n < other.arrangements.length; n++) {
+            arrangements[n] += other.arrangements[n];
+            for (int i = 0; i < minedArrangements.length; i++) {
+                minedArrangements[i][n] += other.minedArrangements[i][n];
+            }
+        }
+    }
+    
+    /**
+     * Make sure the tally has room for arrangements with a given number of mines.
+     *
+     * @param   n The number of mines.
+     */
+    private void ensureMines(int n) {
+        if (n < arrangements.length) return;
+        arrangements = Arrays.copyOf(arrangements,n+1);
+        for (int i = 0; i < minedArrangements.length; i++) {
+            minedArrangements[i] = Arrays.copyOf(minedArrangements[i],n+1);
+        }
+    }
+    
+    /**
+     * @return  The largest number of mines in any counted arrangement, or 0 if nothing has been counted.
+     */
+    public int maxMines() {
+        return arrangements.length-1;
+    }
+    
+    /**
+     * @param   n A number of mines.
+     * @return  The number of counted arrangements with exactly n mines in this component.
+     */
+    public long arrangements(int n) {
+        if (n < 0 || n >= arrangements.length) return 0;
+        return arrangements[n];
+    }
+    
+    /**
+     * @param   i The index of a Tile in this component.
+     * @param   n A number of mines.
+     * @return  The number of counted arrangements with exactly n mines in this component, one of which is on the Tile at index i.
+     */
+    public long minedArrangements(int i, int n) {
+        if (n < 0 || n >= arrangements.length) return 0;
+        return minedArrangements[i][n];
+    }
+    
+    /**
+     * @return  The total number of arrangements counted.
+     */
+    public long totalArrangements() {
+        long total = 0;
+        for (long a : arrangements) {
+            total += a;
+        }
+        return total;
+    }
+    
+    /**
+     * @return  The number of Tiles in this component.
+     */
+    public int size() {
+        return tiles.size();
+    }
+    
+    /**
+     * @param   i The index to look up.
+     * @return  The Tile at index i.
+     */
+    public Tile getTile(int i) {
+        return tiles.get(i);
+    }
+    
+    /**
+     * @param   t The Tile to locate.
+     * @return  The index of t in this component, or -1 if it is not included.
+     */
+    public int getIndex(Tile t) {
+        Integer i = tileFinder.get(t);
+        return (i == null ? -1 : i);
+    }
+}
\ No newline at end of file
@@ -5,11 +5,28 @@ import java.util.*;
  * @author  Matheson Longton
  *
  * This class describes a hypothetical arrangement of mines in a given set of Tiles.  Many of these are used in listing all possible arrangements of mines in the tiles which we have any information about.
+ *
+ * The states are packed into two bitmasks: one marking which Tiles are decided, and one marking which of those have mines.  MinePossibilities created from one another share a single immutable index of their Tiles, so making a new one does not copy the Tile list and two of them can be compared a word at a time.
  */
 public class MinePossibility {
     private int size;
-    private MineState[] mineLocations;
-    private ArrayList<Tile> tileFinder;
+    private TileTable tileFinder;
+    private long[] decided, mined;
+    
+    /**
+     * An index of Tiles shared by related MinePossibilities.  It is never changed after it is built.
+     */
+    private static class TileTable {
+        final ArrayList<Tile> tiles;
+        final HashMap<Tile,Integer> index;
+        TileTable(Collection<Tile> edge) {
+            tiles = new ArrayList<Tile>(edge);
+            index = new HashMap<Tile,Integer>(tiles.size()*4/3+1);
+            for (int i = 0; i < tiles.size(); i++) {
+                index.put(tiles.get(i),i);
+            }
+        }
+    }
     
     /**
      * Define a MinePossibility based on a set of Tiles.  All tiles will initially be marked as unknown.
@@ -17,12 +34,23 @@ public class MinePossibility {
      * @param   edge The collection of Tiles this MinePossibility will describe.
      */
     public MinePossibility(Collection<Tile> edge) {
-        size = edge.size();
-        tileFinder = new ArrayList<Tile>(edge);
-        mineLocations = new MineState[size];
-        for (int i = 0; i < size; i++) {
-            mineLocations[i] = MineState.U;
-        }
+        this(new TileTable(edge));
+    }
+    
+    /**
+     * Define a MinePossibility for the same Tiles as another one, sharing its index of Tiles.  All tiles will initially be marked as unknown.
+     *
+     * @param   template A MinePossibility describing the Tiles to use.
+     */
+    public MinePossibility(MinePossibility template) {
+        this(template.tileFinder);
+    }
+    
+    private MinePossibility(TileTable table) {
+        tileFinder = table;
+        size = table.tiles.size();
+        decided = new long[(size+63) >>> 6];
+        mined = new long[decided.length];
     }
     
     /**
@@ -32,7 +60,8 @@ public class MinePossibility {
      * @return  The index of the Tile.
      */
     public int getIndex(Tile t) {
-        return tileFinder.indexOf(t);
+        Integer i = tileFinder.index.get(t);
+        return (i == null ? -1 : i);
     }
     
     /**
@@ -42,7 +71,7 @@ public class MinePossibility {
      * @return  The Tile at index i.
      */
     public Tile getTile(int i) {
-        return tileFinder.get(i);
+        return tileFinder.tiles.get(i);
     }
     
     /**
@@ -54,7 +83,19 @@ public class MinePossibility {
      */
     public boolean set(int i, MineState x) {
         if (i<0 || i>=size) { return false; }
-        mineLocations[i] = x;
+        long bit = 1L << i;
+        if (x == MineState.U) {
+            decided[i >>> 6] &= ~bit;
+        }
+        else {
+            decided[i >>> 6] |= bit;
+        }
+        if (x == MineState.X) {
+            mined[i >>> 6] |= bit;
+        }
+        else {
+            mined[i >>> 6] &= ~bit;
+        }
         return true;
     }
     
@@ -76,7 +117,9 @@ public class MinePossibility {
      * @return  The state of the Tile at index i.
      */
     public MineState get(int i) {
-        return mineLocations[i];
+        long bit = 1L << i;
+        if ((decided[i >>> 6] & bit) == 0) return MineState.U;
+        return ((mined[i >>> 6] & bit) != 0 ? MineState.X : MineState.O);
     }
     
     /**
@@ -86,7 +129,7 @@ public class MinePossibility {
      * @return  The state of the Tile t.
      */
     public MineState get(Tile t) {
-        return mineLocations[getIndex(t)];
+        return get(getIndex(t));
     }
     
     /**
@@ -104,20 +147,32 @@ public class MinePossibility {
      */
     public MinePossibility compatible(MinePossibility other) {
         if (size != other.size) return null;
+        if (other.tileFinder == tileFinder) {
+            //a Tile conflicts if both have decided it and they disagree about the mine
+            for (int w = 0; w < decided.length; w++) {
+                if ((decided[w] & other.decided[w] & (mined[w] ^ other.mined[w])) != 0) {
+                    return null;
+                }
+            }
+            MinePossibility combined = new MinePossibility(tileFinder);
+            for (int w = 0; w < decided.length; w++) {
+                combined.decided[w] = decided[w] | other.decided[w];
+                combined.mined[w] = mined[w] | other.mined[w];
+            }
+            return combined;
+        }
         MinePossibility combined = new MinePossibility(tileFinder);
         for (int i = 0; i < size; i++) {
-            int otherI = other.getIndex(tileFinder.get(i));
+            int otherI = other.getIndex(getTile(i));
             if (otherI < 0) {
                 return null;
             }
-            if (mineLocations[i] == MineState.U) {
-                combined.set(i,other.get(otherI));
-            }
-            else if (other.get(otherI) == MineState.U) {
-                combined.set(i,mineLocations[i]);
+            MineState mine = get(i), theirs = other.get(otherI);
+            if (mine == MineState.U) {
+                combined.set(i,theirs);
             }
-            else if (mineLocations[i] == other.get(otherI)) {
-                combined.set(i,mineLocations[i]);
+            else if (theirs == MineState.U || mine == theirs) {
+                combined.set(i,mine);
             }
             else {
                 return null;
@@ -129,13 +184,13 @@ public class MinePossibility {
     public String toString() {
         String str = "[";
         for (int i = 0; i < size; i++) {
-            if (tileFinder.get(i) instanceof SquareTile) {
-                str = str + ((SquareTile)tileFinder.get(i)).toFullString() + "=";
+            if (getTile(i) instanceof SquareTile) {
+                str = str + ((SquareTile)getTile(i)).toFullString() + "=";
             }
             else {
-                str = str + tileFinder.get(i).toString() + "=";
+                str = str + getTile(i).toString() + "=";
             }
-            str = str + mineLocations[i];
+            str = str + get(i);
             if (i < size-1) str = str + ", ";
         }
         str = str + "]";
@@ -9,6 +9,11 @@ import java.util.*;
 public class MineSet {
     private Collection<Tile> tiles;
     public SortedSet<Integer> possibleMines;
+    /**
+     * The Tiles of this MineSet as a bitset over their ids, starting at word number firstWord.  The array is trimmed so that its first and last words are non-zero.  If any Tile has not been numbered by its Board then tileBits is null and only the tiles collection is used.
+     */
+    private long[] tileBits;
+    private int firstWord, nTiles;
     
     /**
      * Create a MineSet in which a collection of Tiles may have a varying number of mines.
@@ -16,9 +21,11 @@ public class MineSet {
      * @param   pM A SortedSet containing the possible numbers of mines in these Tiles.
      * @param   t The tiles described by this MineSet.
      */
-    public MineSet(SortedSet<Integer> pM, Collection<Tile> t) { //\todo{might be a good idea to clone the tile collection}
-        tiles = t;
+    public MineSet(SortedSet<Integer> pM, Collection<Tile> t) {
+        tiles = new ArrayList<Tile>(t);
         possibleMines = new TreeSet<Integer>(pM);
+        indexTiles();
+        SolverMetrics.INSTANCE.created(1);
     }
     
     /**
@@ -28,9 +35,11 @@ public class MineSet {
      * @param   t The tiles described by this MineSet.
      */
     public MineSet(int nM, Collection<Tile> t) {
-        tiles = t;
+        tiles = new ArrayList<Tile>(t);
         possibleMines = new TreeSet<Integer>();
         possibleMines.add(nM);
+        indexTiles();
+        SolverMetrics.INSTANCE.created(1);
     }
     
     /**
@@ -40,20 +49,90 @@ public class MineSet {
      * @param   t An iterator of tiles described by this MineSet.
      */
     public MineSet(int nM, Iterator<Tile> t) {
-        tiles = new LinkedList<Tile>();
+        tiles = new ArrayList<Tile>();
         while (t.hasNext()) {
             tiles.add(t.next());
         }
         possibleMines = new TreeSet<Integer>();
         possibleMines.add(nM);
+        indexTiles();
+        SolverMetrics.INSTANCE.created(1);
     }
     
     /**
      * Create an empty MineSet, describing no Tiles.
      */
     public MineSet() {
-        tiles = new LinkedList<Tile>();
+        this(10);
+    }
+    
+    /**
+     * Create an empty MineSet with room for a given number of Tiles, for filling in by splitWith.
+     *
+     * @param   capacity The number of Tiles expected.
+     */
+    private MineSet(int capacity) {
+        tiles = new ArrayList<Tile>(capacity);
         possibleMines = new TreeSet<Integer>();
+        tileBits = new long[0];
+        SolverMetrics.INSTANCE.created(1);
+    }
+    
+    /**
+     * Build the bitset of Tile ids from the tiles collection.
+     */
+    private void indexTiles() {
+        nTiles = tiles.size();
+        if (tiles.isEmpty()) {
+            tileBits = new long[0];
+            firstWord = 0;
+            return;
+        }
+        int minId = Integer.MAX_VALUE, maxId = -1;
+        for (Tile t : tiles) {
+            if (t.getId() < 0) {
+                tileBits = null;
+                return;
+            }
+            minId = Math.min(minId,t.getId());
+            maxId = Math.max(maxId,t.getId());
+        }
+        firstWord = minId >>> 6;
+        tileBits = new long[(maxId >>> 6) - firstWord + 1];
+        for (Tile t : tiles) {
+            tileBits[(t.getId() >>> 6) - firstWord] |= 1L << t.getId();
+        }
+        nTiles = 0;
+        for (long w : tileBits) {
+            nTiles += Long.bitCount(w);
+        }
+    }
+    
+    /**
+     * Use a bitset produced by a word operation as the Tiles of this MineSet, trimming off any empty words at either end.
+     *
+     * @param   words The bitset.
+     * @param   first The word number of words[0].
+     */
+    private void setBits(long[] words, int first) {
+        int lo = 0, hi = words.length;
+        while (lo < hi && words[lo] == 0) lo++;
+        while (hi > lo && words[hi-1] == 0) hi--;
+        tileBits = (lo == 0 && hi == words.length ? words : Arrays.copyOfRange(words,lo,hi));
+        firstWord = (hi > lo ? first+lo : 0);
+        nTiles = 0;
+        for (long w : tileBits) {
+            nTiles += Long.bitCount(w);
+        }
+    }
+    
+    /**
+     * @param   id A Tile id.
+     * @return  true if the bitset of this MineSet includes id.
+     */
+    private boolean hasBit(int id) {
+        int w = (id >>> 6) - firstWord;
+        return w >= 0 && w < tileBits.length && (tileBits[w] & (1L << id)) != 0;
     }
     
     /**
@@ -71,12 +150,24 @@ public class MineSet {
                 changed = true;
                 tileIt.remove();
             }
-            else if (t.flagged) {
+            else if (t.isFlagged()) {
                 changed = true;
                 tileIt.remove();
                 flagsRemoved++;
             }
         }
+        if (changed) {
+            if (tileBits == null) {
+                indexTiles();
+            }
+            else {
+                long[] words = new long[tileBits.length];
+                for (Tile t : tiles) {
+                    words[(t.getId() >>> 6) - firstWord] |= 1L << t.getId();
+                }
+                setBits(words,firstWord);
+            }
+        }
         SortedSet<Integer> newPM = new TreeSet<Integer>();
         for (int n : possibleMines) {
             if (n >= flagsRemoved) {
@@ -94,14 +185,34 @@ public class MineSet {
      * @return  true if the two MineSets have the same Tiles, false otherwise.
      */
     public boolean equalTiles(MineSet other) {
-        if (tiles.size() != other.tiles.size()) {
+        if (tileCount() != other.tileCount()) {
             return false;
-        } else if (!other.tiles.containsAll(tiles) || !tiles.containsAll(other.tiles)) {
+        }
+        else if (tileBits != null && other.tileBits != null) {
+            return firstWord == other.firstWord && Arrays.equals(tileBits,other.tileBits);
+        }
+        else if (!other.tiles.containsAll(tiles) || !tiles.containsAll(other.tiles)) {
             return false;
         }
         return true;
     }
     
+    /**
+     * Calculate a hash of the Tiles in this MineSet which does not depend on their order, so that MineSets with equal Tiles have equal hashes.
+     *
+     * @return  The hash of this MineSet's Tiles.  This changes whenever the Tiles change.
+     */
+    public int tileHash() {
+        if (tileBits != null) {
+            return 31*Arrays.hashCode(tileBits) + firstWord;
+        }
+        int h = 0;
+        for (Tile t : tiles) {
+            h += t.hashCode();
+        }
+        return h;
+    }
+    
     /**
      * @return An iterator for the Tiles in this MineSet.
      */
@@ -113,7 +224,7 @@ public class MineSet {
      * @return The number of Tiles in this MineSet.
      */
     public int tileCount() {
-        return tiles.size();
+        return (tileBits == null ? tiles.size() : nTiles);
     }
     
     /**
@@ -121,6 +232,9 @@ public class MineSet {
      * @return true if t is in this MineSet, false otherwise.
      */
     public boolean hasTile(Tile t) {
+        if (tileBits != null && t.getId() >= 0) {
+            return hasBit(t.getId());
+        }
         return tiles.contains(t);
     }
     
@@ -133,19 +247,74 @@ public class MineSet {
      * @return  An array of the three MineSets.  The intersection is always the first item, then this-other, and finally other-this.
      */
     public MineSet[] splitWith(MineSet other) {
-        MineSet aMINUSb = new MineSet(), bMINUSa = new MineSet(), aANDb = new MineSet();
-        for (Tile t : tiles) {
-            if (other.hasTile(t)) {
-                aANDb.tiles.add(t);
+        return splitWith(other,-1);
+    }
+    
+    /**
+     * Compare this MineSet to another whose overlap with this one is already known, and find MineSets describing the intersection and difference of Tiles.  Knowing the overlap lets each of the three new MineSets be allocated at its final size.
+     *
+     * @param   other The MineSet to compare.
+     * @param   overlap The number of Tiles in both MineSets, or -1 if it is not known.
+     * @return  An array of the three MineSets.  The intersection is always the first item, then this-other, and finally other-this.
+     */
+    public MineSet[] splitWith(MineSet other, int overlap) {
+        SolverMetrics.INSTANCE.splitWith();
+        MineSet aMINUSb, bMINUSa, aANDb;
+        if (overlap < 0) {
+            aMINUSb = new MineSet();
+            bMINUSa = new MineSet();
+            aANDb = new MineSet();
+        }
+        else {
+            aMINUSb = new MineSet(Math.max(0,tiles.size()-overlap));
+            bMINUSa = new MineSet(Math.max(0,other.tiles.size()-overlap));
+            aANDb = new MineSet(overlap);
+        }
+        if (tileBits != null && other.tileBits != null) {
+            for (Tile t : tiles) {
+                if (other.hasBit(t.getId())) {
+                    aANDb.tiles.add(t);
+                }
+                else {
+                    aMINUSb.tiles.add(t);
+                }
             }
-            else {
-                aMINUSb.tiles.add(t);
+            for (Tile t : other.tiles) {
+                if (!this.hasBit(t.getId())) {
+                    bMINUSa.tiles.add(t);
+                }
+            }
+            //the bitsets are lined up over the union of both ranges of words
+            int first = Math.min(firstWord,other.firstWord);
+            int last = Math.max(firstWord+tileBits.length,other.firstWord+other.tileBits.length);
+            long[] and = new long[Math.max(last-first,0)], aNotB = new long[and.length], bNotA = new long[and.length];
+            for (int w = 0; w < and.length; w++) {
+                long a = word(w+first), b = other.word(w+first);
+                and[w] = a & b;
+                aNotB[w] = a & ~b;
+                bNotA[w] = b & ~a;
             }
+            aANDb.setBits(and,first);
+            aMINUSb.setBits(aNotB,first);
+            bMINUSa.setBits(bNotA,first);
         }
-        for (Tile t : other.tiles) {
-            if (!this.hasTile(t)) {
-                bMINUSa.tiles.add(t);
+        else {
+            for (Tile t : tiles) {
+                if (other.hasTile(t)) {
+                    aANDb.tiles.add(t);
+                }
+                else {
+                    aMINUSb.tiles.add(t);
+                }
+            }
+            for (Tile t : other.tiles) {
+                if (!this.hasTile(t)) {
+                    bMINUSa.tiles.add(t);
+                }
             }
+            aANDb.indexTiles();
+            aMINUSb.indexTiles();
+            bMINUSa.indexTiles();
         }
         for (int nA : this.possibleMines) {
             for (int nB : other.possibleMines) {
@@ -162,6 +331,15 @@ public class MineSet {
         return result;
     }
     
+    /**
+     * @param   w A word number.
+     * @return  The bits for Tile ids 64*w to 64*w+63 in this MineSet.
+     */
+    private long word(int w) {
+        w -= firstWord;
+        return (w >= 0 && w < tileBits.length ? tileBits[w] : 0);
+    }
+    
     public String toString() {
         String str = "Tiles [";
         for (Tile t : tiles) {
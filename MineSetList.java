@@ -36,6 +36,7 @@ public class MineSetList extends LinkedList<MineSet> {
             return x;
         }
         else {
+            if (toUpdate != x) SolverMetrics.INSTANCE.deduplicated();
             boolean possibilityRemoved = false;
             for (Iterator<Integer> it = toUpdate.possibleMines.iterator(); it.hasNext();) {
                 int n = it.next();
@@ -0,0 +1,330 @@
+import java.lang.*;
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A queue of MineSets waiting to be compared, in an order chosen by a scheduling Policy.  Like a MineSetList it will update an existing MineSet instead of adding another with identical Tiles.  MineSets are indexed by the hash of their Tiles and kept in a tree ordered by priority, so adding, updating and polling all take logarithmic time.
+ */
+public class MineSetQueue extends AbstractQueue<MineSet> {
+    
+    /**
+     * The order in which MineSets are taken from the queue.
+     */
+    public enum Policy {
+        /**
+         * First in, first out.  Updating a MineSet does not change its place in the queue.
+         */
+        FIFO {
+            long priority(MineSet x, long firstSeen, long touched) {
+                return firstSeen;
+            }
+        },
+        /**
+         * MineSets with the fewest Tiles first.  These are usually the most informative, such as one mine in two Tiles.
+         */
+        SMALLEST {
+            long priority(MineSet x, long firstSeen, long touched) {
+                return x.tileCount();
+            }
+        },
+        /**
+         * MineSets with the fewest possible numbers of mines first.
+         */
+        FEWEST_POSSIBLE {
+            long priority(MineSet x, long firstSeen, long touched) {
+                return x.possibleMines.size();
+            }
+        },
+        /**
+         * The most recently added or updated MineSet first, so work stays in the region that was changed last.
+         */
+        RECENT {
+            long priority(MineSet x, long firstSeen, long touched) {
+                return -touched;
+            }
+        };
+        
+        /**
+         * @param   x A MineSet in the queue.
+         * @param   firstSeen A counter value from when x was added to the queue.
+         * @param   touched A counter value from when x was last added or updated.
+         * @return  The priority of x.  Lower values are taken first, with ties taken in the order they were added.
+         */
+        abstract long priority(MineSet x, long firstSeen, long touched);
+    }
+    
+    /**
+     * A MineSet's place in the queue.
+     */
+    private static class Node {
+        MineSet set;
+        long priority, firstSeen, touched;
+        int key;
+        Node(MineSet x, long seq) {
+            set = x;
+            firstSeen = seq;
+            touched = seq;
+        }
+    }
+    
+    private Policy policy;
+    private TreeSet<Node> order;
+    private HashMap<Integer,ArrayList<Node>> buckets;
+    private IdentityHashMap<MineSet,Node> nodes;
+    private long counter;
+    
+    /**
+     * Create an empty queue.
+     *
+     * @param   p The scheduling policy.  If this is null then FIFO is used.
+     */
+    public MineSetQueue(Policy p) {
+        this(p,16);
+    }
+    
+    /**
+     * Create an empty queue with room for a number of MineSets before its indexes have to grow.
+     *
+     * @param   p The scheduling policy.  If this is null then FIFO is used.
+     * @param   expected The number of MineSets expected.
+     */
+    public MineSetQueue(Policy p, int expected) {
+        policy = (p == null ? Policy.FIFO : p);
+        order = new TreeSet<Node>(new Comparator<Node>() {
+            public int compare(Node a, Node b) {
+                if (a.priority != b.priority) return (a.priority < b.priority ? -1 : 1);
+                return Long.compare(a.firstSeen,b.firstSeen);
+            }
+        });
+        buckets = new HashMap<Integer,ArrayList<Node>>(Math.max(16,expected*4/3+1));
+        nodes = new IdentityHashMap<MineSet,Node>(Math.max(16,expected));
+    }
+    
+    /**
+     * Create a queue containing a single MineSet.
+     *
+     * @param   p The scheduling policy.
+     * @param   init A MineSet to place in the new queue.
+     */
+    public MineSetQueue(Policy p, MineSet init) {
+        this(p);
+        addOrUpdate(init);
+    }
+    
+    /**
+     * Create a queue holding the same MineSets as another, each remembering when it was added and last updated there, but taken in the order of a different policy.  A queue copied under its own policy polls in exactly the same order.
+     *
+     * @param   p The scheduling policy.  If this is null then FIFO is used.
+     * @param   other The queue to copy.
+     */
+    public MineSetQueue(Policy p, MineSetQueue other) {
+        this(p,other.size());
+        for (Node n : other.order) {
+            restore(n.set,n.firstSeen,n.touched);
+        }
+    }
+    
+    /**
+     * @return  The scheduling policy of this queue.
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * Find the MineSet in this queue with the same tiles as a given MineSet.
+     *
+     * @param   x The MineSet to search for.
+     * @return  A MineSet in this queue with the same Tiles as x, or null if no such MineSet exists.
+     */
+    public MineSet containsTiles(MineSet x) {
+        Node n = nodes.get(x);
+        if (n != null) {
+            reindex(n);
+            return x;
+        }
+        ArrayList<Node> bucket = buckets.get(x.tileHash());
+        if (bucket != null) {
+            for (Node y : bucket) {
+                if (x.equalTiles(y.set)) {
+                    return y.set;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Add a MineSet to this queue, or update an existing MineSet with the same Tiles.
+     *
+     * @param   x The MineSet to add.
+     * @return  If x is added, it is returned.  If an existing MineSet with the same Tiles is updated based on x then that MineSet is returned.  If an existing MineSet was already identical to x, then null is returned.
+     */
+    public MineSet addOrUpdate(MineSet x) {
+        MineSet toUpdate = containsTiles(x);
+        if (toUpdate == null) {
+            Node n = new Node(x,counter++);
+            n.key = x.tileHash();
+            n.priority = policy.priority(x,n.firstSeen,n.firstSeen);
+            nodes.put(x,n);
+            bucket(n.key).add(n);
+            order.add(n);
+            return x;
+        }
+        if (toUpdate != x) SolverMetrics.INSTANCE.deduplicated();
+        boolean possibilityRemoved = false;
+        for (Iterator<Integer> it = toUpdate.possibleMines.iterator(); it.hasNext();) {
+            int n = it.next();
+            if (!x.possibleMines.contains(n)) {
+                it.remove();
+                possibilityRemoved = true;
+            }
+        }
+        if (possibilityRemoved) {
+            reprioritize(nodes.get(toUpdate),true);
+            return toUpdate;
+        }
+        return null;
+    }
+    
+    /**
+     * Find when a MineSet was added to this queue and when it was last added or updated, so that its place can be saved.
+     *
+     * @param   x A MineSet in this queue.
+     * @return  The two counter values, or null if x is not in this queue.
+     */
+    long[] stamps(MineSet x) {
+        Node n = nodes.get(x);
+        return (n == null ? null : new long[] {n.firstSeen, n.touched});
+    }
+    
+    /**
+     * Put a MineSet back in its place, as given by stamps.  Counter values only matter relative to each other, and later additions are counted from after the largest restored value.  Unlike addOrUpdate, x is never merged with a MineSet already in the queue, since a queue can hold two MineSets which removeKnown has made the same and a restored queue should hold them both.
+     *
+     * @param   x The MineSet to put back.
+     * @param   firstSeen The counter value from when x was added.
+     * @param   touched The counter value from when x was last added or updated.
+     */
+    void restore(MineSet x, long firstSeen, long touched) {
+        Node n = new Node(x,firstSeen);
+        n.touched = touched;
+        n.key = x.tileHash();
+        n.priority = policy.priority(x,n.firstSeen,n.touched);
+        nodes.put(x,n);
+        bucket(n.key).add(n);
+        order.add(n);
+        counter = Math.max(counter,Math.max(firstSeen,touched)+1);
+    }
+    
+    /**
+     * Perform addOrUpdate with each of a number of MineSets.
+     *
+     * @param   x The MineSet collection to be added.
+     * @return  true if this queue was changed, false otherwise.
+     */
+    public boolean addOrUpdateAll(Collection<MineSet> x) {
+        boolean changed = false;
+        if (x == null) return false;
+        for (MineSet y : x) {
+            changed = (this.addOrUpdate(y) != null) || changed;
+        }
+        return changed;
+    }
+    
+    /**
+     * Adds a MineSet, or updates an existing one with the same Tiles, as addOrUpdate does.
+     *
+     * @param   x The MineSet to add.
+     * @return  true
+     */
+    public boolean offer(MineSet x) {
+        addOrUpdate(x);
+        return true;
+    }
+    
+    public MineSet poll() {
+        Node n = order.pollFirst();
+        if (n == null) return null;
+        unindex(n);
+        return n.set;
+    }
+    
+    public MineSet peek() {
+        return (order.isEmpty() ? null : order.first().set);
+    }
+    
+    public int size() {
+        return order.size();
+    }
+    
+    public void clear() {
+        order.clear();
+        buckets.clear();
+        nodes.clear();
+    }
+    
+    public Iterator<MineSet> iterator() {
+        final Iterator<Node> it = order.iterator();
+        return new Iterator<MineSet>() {
+            private Node last;
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+            public MineSet next() {
+                return (last = it.next()).set;
+            }
+            public void remove() {
+                it.remove();
+                unindex(last);
+            }
+        };
+    }
+    
+    /**
+     * Move a MineSet to the right place in the index and the queue after it has been changed outside of this queue (for example by removeKnown).
+     */
+    private void reindex(Node n) {
+        int newKey = n.set.tileHash();
+        if (newKey != n.key) {
+            removeFromBucket(n);
+            n.key = newKey;
+            bucket(newKey).add(n);
+        }
+        reprioritize(n,false);
+    }
+    
+    /**
+     * Recalculate the priority of a MineSet in the queue.
+     *
+     * @param   touched true if the MineSet has just been updated.
+     */
+    private void reprioritize(Node n, boolean touched) {
+        if (touched) n.touched = counter++;
+        long p = policy.priority(n.set,n.firstSeen,n.touched);
+        if (p == n.priority) return;
+        order.remove(n);
+        n.priority = p;
+        order.add(n);
+    }
+    
+    private ArrayList<Node> bucket(int key) {
+        ArrayList<Node> b = buckets.get(key);
+        if (b == null) {
+            b = new ArrayList<Node>(2);
+            buckets.put(key,b);
+        }
+        return b;
+    }
+    
+    private void removeFromBucket(Node n) {
+        ArrayList<Node> b = buckets.get(n.key);
+        b.remove(n);
+        if (b.isEmpty()) buckets.remove(n.key);
+    }
+    
+    private void unindex(Node n) {
+        removeFromBucket(n);
+        nodes.remove(n.set);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,336 @@
+import java.lang.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * Estimates the probability that each Tile of an Edge has a mine by sampling arrangements of mines, for edges whose components are too large to enumerate.  Unlike an OddsCalculator this works from the Edge itself rather than from tallies of its components, since the point is never to tally them.
+ *
+ * Each sample is built the way an EdgeEnumerator searches, one Tile at a time in the contiguous order of components(), except that instead of trying both states of a Tile it picks one of the states which keep every MineSet satisfiable.  When both are allowed a mine is picked with the overall density of mines, and the sample's weight is divided by the chance of the pick.  The finished sample is also weighted by the number of ways to place the remaining mines in the bulk, so that the weighted samples estimate exactly the probabilities LogOdds would find.  A sample which runs into a contradiction gets no weight.
+ *
+ * Local Markov chain moves were tried first, but they cannot cross between the arrangements of a long wall of 1s, which differ on every Tile of the wall, and so they report confident wrong answers.  These samples are independent, so the confidence intervals are honest however the arrangements are spread.  Nothing is stored per sample, so the memory used depends only on the size of the Edge.
+ *
+ * Several chains of samples run in parallel, each from its own split of the Board's source of randomness, so a seeded Board gets the same estimate however the threads are scheduled.  Sampling stops when every confidence interval is narrow enough, the sample budget is spent or a Deadline passes, whichever comes first.  Only the last of these depends on the speed of the machine.
+ */
+public class MonteCarloOdds {
+    /**
+     * The smallest Edge component worth sampling.  A Board with a sampler only uses it when its largest component has at least this many Tiles, and enumerates smaller edges exactly.
+     */
+    public int minTiles = 60;
+    /**
+     * The number of chains of samples to run at once.
+     */
+    public int chains = Runtime.getRuntime().availableProcessors();
+    /**
+     * The largest total number of samples to take over all chains.
+     */
+    public long maxSamples = 100000;
+    /**
+     * Sampling stops early once the 95% confidence interval of every probability is within this distance of the estimate.
+     */
+    public double targetHalfWidth = 0.01;
+    /**
+     * The number of samples each chain takes between checks of the confidence intervals.
+     */
+    public int batchSamples = 250;
+    
+    /**
+     * The probabilities estimated for an Edge, with their confidence intervals.
+     */
+    public static class Estimate {
+        /**
+         * The estimated probability that each Tile of the Edge has a mine.  The null key is used for any one Tile in the bulk, and is only set if the bulk is not empty.
+         */
+        public final Map<Tile,Double> probMined = new TileMap<Double>();
+        /**
+         * For each key of probMined, the half-width of the 95% confidence interval of its probability.
+         */
+        public final Map<Tile,Double> halfWidth = new TileMap<Double>();
+        /**
+         * The number of samples taken over all chains.
+         */
+        public long samples;
+        /**
+         * true if sampling stopped because every confidence interval reached targetHalfWidth, false if it ran out of samples.
+         */
+        public boolean converged;
+    }
+    
+    /**
+     * Estimate the probability that each Tile of an Edge has a mine.
+     *
+     * @param   e The Edge to sample.
+     * @param   bulkSize The number of unknown Tiles which are not in the Edge.
+     * @param   remainingN The number of mines in the Edge and bulk together.
+     * @param   pool The pool to run the chains on.  If this is null then the common pool is used.
+     * @param   random The source of randomness which each chain's source is split from.
+     * @return  The estimate, or null if no arrangement of mines is consistent with the Edge.
+     */
+    public Estimate estimate(Edge e, int bulkSize, int remainingN, ForkJoinPool pool, SplittableRandom random) {
+        return estimate(e,bulkSize,remainingN,pool,random,Deadline.NONE);
+    }
+    
+    /**
+     * Estimate the probability that each Tile of an Edge has a mine, stopping early at a deadline with whatever the samples so far show.
+     *
+     * @param   e The Edge to sample.
+     * @param   bulkSize The number of unknown Tiles which are not in the Edge.
+     * @param   remainingN The number of mines in the Edge and bulk together.
+     * @param   pool The pool to run the chains on.  If this is null then the common pool is used.
+     * @param   random The source of randomness which each chain's source is split from.
+     * @param   deadline When to stop sampling.  The estimate is then marked as not converged.
+     * @return  The estimate, or null if no arrangement of mines is consistent with the Edge, or none was found before the deadline.
+     * @throws  CancellationException if the deadline passes while checking that the Edge has an arrangement at all.
+     */
+    public Estimate estimate(Edge e, int bulkSize, int remainingN, ForkJoinPool pool, SplittableRandom random, Deadline deadline) {
+        ArrayList<Tile> tiles = new ArrayList<Tile>();
+        for (ArrayList<Tile> component : e.components()) {
+            tiles.addAll(component);
+        }
+        int n = tiles.size();
+        EdgeEnumerator start = new EdgeEnumerator(tiles,e.componentInfo(tiles),remainingN);
+        //logBulk[m] is the log of the number of ways to place the other mines in the bulk, up to a constant, when the Edge has m mines
+        double[] logBulk = new double[Math.min(remainingN,n)+1];
+        int k0 = remainingN-(logBulk.length-1);
+        double lb = (k0 <= bulkSize ? 0 : Double.NEGATIVE_INFINITY);
+        for (int k = k0; k <= remainingN; k++) {
+            logBulk[remainingN-k] = lb;
+            lb += (k < bulkSize ? Math.log(bulkSize-k)-Math.log(k+1) : Double.NEGATIVE_INFINITY);
+        }
+        if (!start.start() || !consistent(start,logBulk,deadline)) {
+            return null;
+        }
+        //undo the arrangement found, leaving a searcher with nothing assigned for the chains to copy
+        for (int i = n-1; i >= 0; i--) {
+            start.unassign(i);
+        }
+        double density = Math.min(0.95,Math.max(0.05,(double)remainingN/(n+bulkSize)));
+        int nChains = Math.max(1,chains), batch = Math.max(1,batchSamples);
+        ArrayList<Chain> all = new ArrayList<Chain>(nChains);
+        for (int c = 0; c < nChains; c++) {
+            all.add(new Chain(new EdgeEnumerator(start),logBulk,bulkSize,remainingN,density,batch,random.split(),deadline));
+        }
+        if (pool == null) {
+            pool = ForkJoinPool.commonPool();
+        }
+        Estimate result = new Estimate();
+        double[] p = new double[n+1], half = new double[n+1];
+        int rounds = 0;
+        while (true) {
+            for (Future<Void> f : pool.invokeAll(all)) {
+                try {
+                    f.get();
+                }
+                catch (InterruptedException|ExecutionException ex) {
+                    throw new IllegalStateException("A sampler chain failed.",ex);
+                }
+            }
+            rounds++;
+            result.samples = 0;
+            for (Chain c : all) {
+                result.samples += c.taken;
+            }
+            //bring every chain's sums to the scale of the heaviest sample
+            double scale = Double.NEGATIVE_INFINITY;
+            for (Chain c : all) {
+                scale = Math.max(scale,c.scale);
+            }
+            if (scale == Double.NEGATIVE_INFINITY) { //every sample so far ran into a contradiction
+                if (result.samples >= maxSamples || deadline.expired()) return null;
+                continue;
+            }
+            double sw = 0, sw2 = 0;
+            for (Chain c : all) {
+                double f = Math.exp(c.scale-scale);
+                sw += c.sw*f;
+                sw2 += c.sw2*f*f;
+            }
+            double widest = 0;
+            for (int i = 0; i <= n; i++) {
+                double wx = 0, w2x = 0, w2xx = 0;
+                for (Chain c : all) {
+                    double f = Math.exp(c.scale-scale);
+                    wx += c.wx[i]*f;
+                    w2x += c.w2x[i]*f*f;
+                    w2xx += c.w2xx[i]*f*f;
+                }
+                p[i] = wx/sw;
+                //the variance of a ratio estimator, sum of w^2 (x-p)^2 over (sum of w)^2
+                double var = Math.max(0,w2xx-2*p[i]*w2x+p[i]*p[i]*sw2)/(sw*sw);
+                half[i] = 1.96*Math.sqrt(var);
+                if (i < n || bulkSize > 0) widest = Math.max(widest,half[i]);
+            }
+            //a single heavy sample can make the interval look narrow, so insist on several samples' worth of weight
+            double effective = sw*sw/sw2;
+            result.converged = (rounds >= 4 && effective >= 100 && widest <= targetHalfWidth);
+            if (result.converged || result.samples >= maxSamples || deadline.expired()) break;
+        }
+        for (int i = 0; i < n; i++) {
+            result.probMined.put(tiles.get(i),p[i]);
+            result.halfWidth.put(tiles.get(i),half[i]);
+        }
+        if (bulkSize > 0) {
+            result.probMined.put(null,p[n]);
+            result.halfWidth.put(null,half[n]);
+        }
+        return result;
+    }
+    
+    /**
+     * Check that some arrangement of mines satisfies every MineSet, with a number of mines the bulk can make up the rest of, so that sampling is not started on an impossible Edge.  The search is iterative so that it does not run out of stack on a huge Edge.
+     *
+     * @param   s A searcher with no Tiles assigned, which is left holding the arrangement.
+     * @param   logBulk The weight of each number of mines in the Edge.
+     * @param   deadline When to give up looking.
+     * @return  false if there is no such arrangement.
+     * @throws  CancellationException if the deadline passes first.
+     */
+    private static boolean consistent(EdgeEnumerator s, double[] logBulk, Deadline deadline) {
+        int n = s.tiles.size(), i = 0, next = 0;
+        //fewest mines the Edge may have, so that the rest fit in the bulk
+        int least = 0;
+        while (least < logBulk.length && logBulk[least] == Double.NEGATIVE_INFINITY) {
+            least++;
+        }
+        int[] value = new int[n];
+        for (int steps = 1; true; steps++) {
+            if ((steps & 4095) == 0) deadline.check();
+            if (i == n && s.nMines >= least) return true;
+            boolean advanced = false;
+            for (int v = next; i < n && v < 2; v++) {
+                if (v == 1 && s.nMines >= s.maxMines) break;
+                if (s.assign(i,v == 1) && s.nMines+(n-i-1) >= least) {
+                    value[i++] = v;
+                    next = 0;
+                    advanced = true;
+                    break;
+                }
+                s.unassign(i);
+            }
+            if (advanced) continue;
+            if (--i < 0) return false;
+            s.unassign(i);
+            next = value[i]+1;
+        }
+    }
+    
+    /**
+     * One chain of samples.  Each call takes one batch of samples, or fewer if the deadline passes, and adds them to the chain's sums.  The sums are kept relative to exp(scale), the weight of the heaviest sample so far, so that they neither overflow nor underflow.
+     */
+    private static class Chain implements Callable<Void> {
+        private EdgeEnumerator state;
+        private double[] logBulk;
+        private int bulkSize, remainingN, batch;
+        private double logMine, logClear;
+        private SplittableRandom random;
+        private double density;
+        private Deadline deadline;
+        long taken;
+        double scale = Double.NEGATIVE_INFINITY, sw, sw2;
+        /**
+         * Per Tile (and the bulk, last), the sums of w*x, w^2*x and w^2*x^2 over the samples, where x is 1 if the Tile has a mine, or for the bulk the chance that one of its Tiles has a mine.
+         */
+        double[] wx, w2x, w2xx;
+        
+        Chain(EdgeEnumerator state, double[] logBulk, int bulkSize, int remainingN, double density, int batch, SplittableRandom random, Deadline deadline) {
+            this.state = state;
+            this.logBulk = logBulk;
+            this.bulkSize = bulkSize;
+            this.remainingN = remainingN;
+            this.density = density;
+            this.batch = batch;
+            this.random = random;
+            this.deadline = deadline;
+            logMine = -Math.log(density);
+            logClear = -Math.log(1-density);
+            int n = state.tiles.size();
+            wx = new double[n+1];
+            w2x = new double[n+1];
+            w2xx = new double[n+1];
+        }
+        
+        public Void call() {
+            for (int b = 0; b < batch && !deadline.expired(); b++) {
+                sample();
+                taken++;
+            }
+            return null;
+        }
+        
+        /**
+         * Build one arrangement and add it to the sums.
+         */
+        private void sample() {
+            int n = state.tiles.size(), i = 0;
+            double logW = 0;
+            for (; i < n; i++) {
+                boolean clearOk = state.assign(i,false);
+                state.unassign(i);
+                boolean mineOk = false;
+                if (state.nMines < state.maxMines) {
+                    mineOk = state.assign(i,true);
+                    state.unassign(i);
+                }
+                boolean mine;
+                if (clearOk && mineOk) {
+                    mine = random.nextDouble() < density;
+                    logW += (mine ? logMine : logClear);
+                }
+                else if (clearOk || mineOk) {
+                    mine = mineOk;
+                }
+                else {
+                    break;
+                }
+                state.assign(i,mine);
+            }
+            if (i == n) {
+                logW += logBulk[state.nMines];
+                if (logW > Double.NEGATIVE_INFINITY) {
+                    add(logW);
+                }
+            }
+            for (i--; i >= 0; i--) {
+                state.unassign(i);
+            }
+        }
+        
+        /**
+         * Add the arrangement held by state to the sums.
+         *
+         * @param   logW The log of its weight.
+         */
+        private void add(double logW) {
+            int n = state.tiles.size();
+            if (logW > scale) {
+                double f = Math.exp(scale-logW), f2 = f*f;
+                sw *= f;
+                sw2 *= f2;
+                for (int i = 0; i <= n; i++) {
+                    wx[i] *= f;
+                    w2x[i] *= f2;
+                    w2xx[i] *= f2;
+                }
+                scale = logW;
+            }
+            double w = Math.exp(logW-scale), w2 = w*w;
+            sw += w;
+            sw2 += w2;
+            for (int i = 0; i < n; i++) {
+                if (state.mined[i]) {
+                    wx[i] += w;
+                    w2x[i] += w2;
+                    w2xx[i] += w2;
+                }
+            }
+            //the bulk Tiles are exchangeable, so their chance of a mine given the Edge is known exactly
+            if (bulkSize > 0) {
+                double x = (double)(remainingN-state.nMines)/bulkSize;
+                wx[n] += w*x;
+                w2x[n] += w2*x;
+                w2xx[n] += w2*x*x;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A method of turning the tallies of independent Edge components into the probability that each Tile has a mine.  The components only interact through the total number of mines, and each arrangement of mines in the edge is weighted by the number of ways to place the remaining mines in the bulk of unknown Tiles.
+ */
+public interface OddsCalculator {
+    
+    /**
+     * Find the probability that each Tile has a mine.
+     *
+     * @param   components The tallies of each independent component of the Edge.
+     * @param   bulkSize The number of unknown Tiles which are not in the Edge.
+     * @param   remainingN The number of mines in the Edge and bulk together.
+     * @param   probMined A map to be filled with the probability that each edge Tile has a mine.  The null key is used for any one Tile in the bulk, and is only set if bulkSize is positive.
+     * @return  false if no arrangement of mines is consistent with the components, in which case probMined is not filled.
+     */
+    boolean findOdds(List<MineCounts> components, int bulkSize, int remainingN, Map<Tile,Double> probMined);
+}
\ No newline at end of file
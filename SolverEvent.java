@@ -0,0 +1,101 @@
+/**
+ * @author  Matheson Longton
+ *
+ * Something the solver did to a Board: a guess, a Tile revealed or flagged without guessing, or the end of a round of MineSet comparison which changed the Board.  Events are published through a Board's SolverEvents and handed to SolverListeners on another thread, so they carry everything a listener needs to know (the Tile's id and coordinates, and the odds or counts) rather than the Tile itself, which may be a short-lived view.  Events are immutable, so they can be handled on another thread while the solver carries on.
+ */
+public class SolverEvent {
+    /**
+     * The kinds of event.
+     */
+    public enum Type {
+        /**
+         * A Tile was revealed by guessing.  This is published after the Tile is revealed, including when it had a mine.
+         */
+        GUESS,
+        /**
+         * A Tile was found to be safe and revealed.
+         */
+        REVEAL,
+        /**
+         * A Tile was found to have a mine and flagged.
+         */
+        FLAG,
+        /**
+         * One comparison of a MineSet with its neighbours revealed or flagged some Tiles.
+         */
+        ROUND
+    }
+    
+    /**
+     * The kind of this event.
+     */
+    public final Type type;
+    /**
+     * The Board the event happened on, so that a listener hearing from several Boards can tell them apart.  The solver is still changing the Board while the event is handled, so listeners should not read its Tiles.
+     */
+    public final Board board;
+    /**
+     * The id of the Tile, or -1 for a ROUND.
+     */
+    public final int tileId;
+    /**
+     * The coordinates of the Tile, or -1 if the Board has no coordinates or for a ROUND.
+     */
+    public final int x, y;
+    /**
+     * For a GUESS, the probability that the guess is safe.  Otherwise this is 1 for a REVEAL and 0 for a FLAG, and NaN for a ROUND.
+     */
+    public final double odds;
+    /**
+     * For a ROUND, the numbers of Tiles revealed and flagged by it.  Otherwise these are 0.
+     */
+    public final int revealed, flagged;
+    
+    /**
+     * Describe something which happened to one Tile.
+     *
+     * @param   type GUESS, REVEAL or FLAG.
+     * @param   b The Board containing the Tile.
+     * @param   t The Tile.
+     * @param   odds The probability that the Tile is safe.
+     */
+    SolverEvent(Type type, Board b, Tile t, double odds) {
+        this.type = type;
+        board = b;
+        tileId = t.getId();
+        x = b.xOf(t);
+        y = b.yOf(t);
+        this.odds = odds;
+        revealed = 0;
+        flagged = 0;
+    }
+    
+    /**
+     * Describe a round of comparison.
+     *
+     * @param   b The Board the round changed.
+     * @param   revealed The number of Tiles revealed in the round.
+     * @param   flagged The number of Tiles flagged in the round.
+     */
+    SolverEvent(Board b, int revealed, int flagged) {
+        type = Type.ROUND;
+        board = b;
+        tileId = -1;
+        x = -1;
+        y = -1;
+        odds = Double.NaN;
+        this.revealed = revealed;
+        this.flagged = flagged;
+    }
+    
+    public String toString() {
+        switch (type) {
+            case GUESS:
+                return "Guessing "+x+","+y+" with "+(odds*100)+"% chance of success.";
+            case ROUND:
+                return "Revealed "+revealed+" and flagged "+flagged+" tiles.";
+            default:
+                return (type == Type.REVEAL ? "Revealed " : "Flagged ")+x+","+y;
+        }
+    }
+}
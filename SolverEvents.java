@@ -0,0 +1,151 @@
+import java.lang.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * Carries SolverEvents from the Boards publishing them to the SolverListeners interested in them.  Publishing only puts the event in a bounded ring buffer, and a consumer thread takes events from it and calls the listeners, so printing or drawing the Board never holds up the solver.  If the buffer is full because the listeners cannot keep up, the event is dropped and counted instead of making the solver wait.
+ *
+ * Any number of Boards may publish to the same SolverEvents.  Each event records its Board, so a listener can tell them apart.
+ */
+public class SolverEvents {
+    private static SolverEvents console;
+    private final ArrayBlockingQueue<SolverEvent> buffer;
+    private final CopyOnWriteArrayList<SolverListener> listeners = new CopyOnWriteArrayList<SolverListener>();
+    private final AtomicLong published = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Object handledLock = new Object();
+    private long handled;
+    private final Thread consumer;
+    
+    /**
+     * Create an empty SolverEvents and start its consumer thread.  The thread is a daemon, so it does not keep the program running, but events still waiting when the program exits are lost unless flush is called first.
+     *
+     * @param   capacity The number of events which can wait to be handled before new ones are dropped.
+     */
+    public SolverEvents(int capacity) {
+        buffer = new ArrayBlockingQueue<SolverEvent>(capacity);
+        consumer = new Thread(new Runnable() {
+            public void run() {
+                consume();
+            }
+        },"solver-events");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+    
+    /**
+     * @return  A SolverEvents shared by every Board which prints its guesses to stdout, with a listener which does the printing.
+     */
+    public static synchronized SolverEvents console() {
+        if (console == null) {
+            console = new SolverEvents(1024);
+            console.addListener(new SolverListener() {
+                public void guessed(SolverEvent e) {
+                    System.out.println(e);
+                }
+            });
+        }
+        return console;
+    }
+    
+    /**
+     * @param   l A listener to be given every event published after this.
+     */
+    public void addListener(SolverListener l) {
+        listeners.add(l);
+    }
+    
+    /**
+     * @param   l A listener which should no longer be given events.
+     */
+    public void removeListener(SolverListener l) {
+        listeners.remove(l);
+    }
+    
+    /**
+     * Hand an event to the consumer thread, or drop it if the buffer is full.  This never waits.
+     *
+     * @param   e The event.
+     * @return  true if the event will be handled, false if it was dropped.
+     */
+    public boolean publish(SolverEvent e) {
+        if (!buffer.offer(e)) {
+            dropped.increment();
+            return false;
+        }
+        published.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * Wait until every event published before this call has been handled by the listeners.  This is for the end of a game, so that anything the listeners print comes before whatever is printed next.
+     */
+    public void flush() {
+        long target = published.get();
+        synchronized (handledLock) {
+            while (handled < target) {
+                try {
+                    handledLock.wait();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return  The number of events dropped because the buffer was full.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+    
+    /**
+     * The body of the consumer thread.  A listener which throws an exception is reported on stderr, and the rest of the listeners still get the event.
+     */
+    private void consume() {
+        while (true) {
+            SolverEvent e;
+            try {
+                e = buffer.take();
+            }
+            catch (InterruptedException ex) {
+                return;
+            }
+            for (SolverListener l : listeners) {
+                try {
+                    dispatch(l,e);
+                }
+                catch (RuntimeException ex) {
+                    System.err.println("Solver listener failed: "+ex);
+                }
+            }
+            synchronized (handledLock) {
+                handled++;
+                handledLock.notifyAll();
+            }
+        }
+    }
+    
+    private static void dispatch(SolverListener l, SolverEvent e) {
+        switch (e.type) {
+            case GUESS:
+                l.guessed(e);
+                break;
+            case REVEAL:
+                l.revealed(e);
+                break;
+            case FLAG:
+                l.flagged(e);
+                break;
+            case ROUND:
+                l.roundFinished(e);
+                break;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * @author  Matheson Longton
+ *
+ * Receives the SolverEvents of the Boards it is listening to.  The methods are called on the consumer thread of a SolverEvents, one event at a time and in the order they were published, never on the thread playing the game.  The Board will usually have moved on by the time an event is handled, and the solver does not synchronise its Tiles with this thread, so a listener should rely only on what the event itself carries and never read the Board.
+ *
+ * Every method does nothing by default, so a listener only needs to override the events it is interested in.
+ */
+public interface SolverListener {
+    
+    /**
+     * A Tile was revealed by guessing.
+     *
+     * @param e The event, with the Tile's coordinates and the probability that the guess was safe.
+     */
+    default void guessed(SolverEvent e) {}
+    
+    /**
+     * A Tile was found to be safe without guessing, and revealed.
+     *
+     * @param e The event.
+     */
+    default void revealed(SolverEvent e) {}
+    
+    /**
+     * A Tile was found to have a mine, and flagged.
+     *
+     * @param e The event.
+     */
+    default void flagged(SolverEvent e) {}
+    
+    /**
+     * A comparison of MineSets finished after revealing or flagging some Tiles.  This follows the events for each of those Tiles.
+     *
+     * @param e The event, with the number of Tiles revealed and flagged.
+     */
+    default void roundFinished(SolverEvent e) {}
+}
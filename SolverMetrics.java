@@ -0,0 +1,195 @@
+import java.lang.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.lang.management.*;
+import javax.management.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * Counters of what the solver is doing, shared by every Board in the process and registered as a JMX MBean so that a long run can be watched in JConsole (or any other JMX client) while it is going.  This shows which phase is taking the time: MineSet comparisons in Edge.compareOne, or enumerating the Edge in Board.statGuess.
+ *
+ * The counters are updated from the hottest parts of the solver, so each one is a LongAdder like the totals of GameStats.  Threads add to their own cells without waiting for each other, and the cells are only summed when an attribute is read.  The gauges of the current Edge are plain volatile fields, since it only matters that some recent value is seen.
+ */
+public class SolverMetrics implements SolverMetricsMBean {
+    /**
+     * The metrics of this process.
+     */
+    public static final SolverMetrics INSTANCE = register();
+    /**
+     * The name the metrics are registered under.
+     */
+    public static final String OBJECT_NAME = "minesweep:type=SolverMetrics";
+    
+    private LongAdder splitWithCalls = new LongAdder(), mineSetsCreated = new LongAdder(), mineSetsDeduplicated = new LongAdder();
+    private LongAdder enumerations = new LongAdder(), configurations = new LongAdder();
+    private LongAdder statGuessCalls = new LongAdder(), statGuessNanos = new LongAdder(), approximateGuesses = new LongAdder(), compareOneCalls = new LongAdder(), compareOneNanos = new LongAdder();
+    private LongAccumulator peakQueueDepth = new LongAccumulator(Math::max,0), peakEdgeTiles = new LongAccumulator(Math::max,0);
+    private volatile int queueDepth, edgeTiles;
+    
+    /**
+     * Create the metrics and register them with the platform MBean server.  If that is not allowed then the metrics are still collected, and can be read through INSTANCE.
+     *
+     * @return  The new metrics.
+     */
+    private static SolverMetrics register() {
+        SolverMetrics m = new SolverMetrics();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(m,new ObjectName(OBJECT_NAME));
+        }
+        catch (JMException|SecurityException e) {
+            System.err.println("Solver metrics are not available through JMX: "+e.getMessage());
+        }
+        return m;
+    }
+    
+    /**
+     * Count a call to MineSet.splitWith.
+     */
+    void splitWith() {
+        splitWithCalls.increment();
+    }
+    
+    /**
+     * Count new MineSets.
+     *
+     * @param   n The number created.
+     */
+    void created(int n) {
+        mineSetsCreated.add(n);
+    }
+    
+    /**
+     * Count a MineSet which was merged into an existing one with the same Tiles instead of being added.
+     */
+    void deduplicated() {
+        mineSetsDeduplicated.increment();
+    }
+    
+    /**
+     * Record the size of an Edge which is comparing a MineSet.
+     *
+     * @param   queued The number of unfinished MineSets in the Edge.
+     * @param   tiles The number of Tiles in the Edge.
+     */
+    void edgeSize(int queued, int tiles) {
+        queueDepth = queued;
+        edgeTiles = tiles;
+        peakQueueDepth.accumulate(queued);
+        peakEdgeTiles.accumulate(tiles);
+    }
+    
+    /**
+     * Count the arrangements of mines found on part of an Edge.
+     *
+     * @param   n The number of arrangements.
+     * @param   enumerated true if a component was enumerated to find them.
+     */
+    void configurations(long n, boolean enumerated) {
+        configurations.add(n);
+        if (enumerated) enumerations.increment();
+    }
+    
+    /**
+     * Count a call to Board.statGuess.
+     *
+     * @param   nanos The time it took.
+     */
+    void statGuess(long nanos) {
+        statGuessCalls.increment();
+        statGuessNanos.add(nanos);
+    }
+    
+    /**
+     * Count a guess made with estimated rather than exact probabilities (see Board.GuessMode).
+     */
+    void approximateGuess() {
+        approximateGuesses.increment();
+    }
+    
+    /**
+     * Count a call to Edge.compareOne.
+     *
+     * @param   nanos The time it took.
+     */
+    void compareOne(long nanos) {
+        compareOneCalls.increment();
+        compareOneNanos.add(nanos);
+    }
+    
+    public long getSplitWithCalls() {
+        return splitWithCalls.sum();
+    }
+    
+    public long getMineSetsCreated() {
+        return mineSetsCreated.sum();
+    }
+    
+    public long getMineSetsDeduplicated() {
+        return mineSetsDeduplicated.sum();
+    }
+    
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+    
+    public long getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+    
+    public int getEdgeTiles() {
+        return edgeTiles;
+    }
+    
+    public long getPeakEdgeTiles() {
+        return peakEdgeTiles.get();
+    }
+    
+    public long getEnumerations() {
+        return enumerations.sum();
+    }
+    
+    public long getConfigurations() {
+        return configurations.sum();
+    }
+    
+    public long getStatGuessCalls() {
+        return statGuessCalls.sum();
+    }
+    
+    public long getStatGuessMillis() {
+        return statGuessNanos.sum()/1000000;
+    }
+    
+    public long getApproximateGuesses() {
+        return approximateGuesses.sum();
+    }
+    
+    public long getCompareOneCalls() {
+        return compareOneCalls.sum();
+    }
+    
+    public long getCompareOneMillis() {
+        return compareOneNanos.sum()/1000000;
+    }
+    
+    public void reset() {
+        for (LongAdder a : new LongAdder[] {splitWithCalls, mineSetsCreated, mineSetsDeduplicated, enumerations, configurations, statGuessCalls, statGuessNanos, approximateGuesses, compareOneCalls, compareOneNanos}) {
+            a.reset();
+        }
+        peakQueueDepth.reset();
+        peakEdgeTiles.reset();
+        queueDepth = 0;
+        edgeTiles = 0;
+    }
+    
+    /**
+     * @return  Every attribute on its own line, as name=value.
+     */
+    public String toString() {
+        return "splitWithCalls="+getSplitWithCalls()+"\nmineSetsCreated="+getMineSetsCreated()+"\nmineSetsDeduplicated="+getMineSetsDeduplicated()
+            +"\nqueueDepth="+getQueueDepth()+"\npeakQueueDepth="+getPeakQueueDepth()+"\nedgeTiles="+getEdgeTiles()+"\npeakEdgeTiles="+getPeakEdgeTiles()
+            +"\nenumerations="+getEnumerations()+"\nconfigurations="+getConfigurations()
+            +"\nstatGuessCalls="+getStatGuessCalls()+"\nstatGuessMillis="+getStatGuessMillis()+"\napproximateGuesses="+getApproximateGuesses()+"\ncompareOneCalls="+getCompareOneCalls()+"\ncompareOneMillis="+getCompareOneMillis();
+    }
+}
\ No newline at end of file
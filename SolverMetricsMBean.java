@@ -0,0 +1,82 @@
+/**
+ * @author  Matheson Longton
+ *
+ * The attributes of SolverMetrics which are shown through JMX, for example in JConsole under minesweep:type=SolverMetrics.  Counts and times are totals since the process started or since the last reset, summed over every Board in the process.
+ */
+public interface SolverMetricsMBean {
+    
+    /**
+     * @return  The number of times two MineSets have been compared with MineSet.splitWith.
+     */
+    long getSplitWithCalls();
+    
+    /**
+     * @return  The number of MineSets created, including the parts made by splitWith.
+     */
+    long getMineSetsCreated();
+    
+    /**
+     * @return  The number of MineSets which were not added to a list or queue because one with the same Tiles was already there.
+     */
+    long getMineSetsDeduplicated();
+    
+    /**
+     * @return  The number of unfinished MineSets waiting in the last Edge to compare one.
+     */
+    int getQueueDepth();
+    
+    /**
+     * @return  The largest number of unfinished MineSets seen waiting in any Edge.
+     */
+    long getPeakQueueDepth();
+    
+    /**
+     * @return  The number of Tiles in the last Edge to compare a MineSet.
+     */
+    int getEdgeTiles();
+    
+    /**
+     * @return  The largest number of Tiles seen in any Edge.
+     */
+    long getPeakEdgeTiles();
+    
+    /**
+     * @return  The number of components of an Edge whose arrangements of mines have been enumerated.  Components reused from the cache are not counted.
+     */
+    long getEnumerations();
+    
+    /**
+     * @return  The total number of arrangements of mines found by enumerating components and by allPossibleEdges.
+     */
+    long getConfigurations();
+    
+    /**
+     * @return  The number of calls to Board.statGuess.
+     */
+    long getStatGuessCalls();
+    
+    /**
+     * @return  The total time spent in Board.statGuess, in milliseconds.
+     */
+    long getStatGuessMillis();
+    
+    /**
+     * @return  The number of guesses made by Board.statGuess with probabilities which were sampled or judged locally instead of enumerated exactly, because the Edge was too large or the deadline passed.
+     */
+    long getApproximateGuesses();
+    
+    /**
+     * @return  The number of calls to Edge.compareOne.
+     */
+    long getCompareOneCalls();
+    
+    /**
+     * @return  The total time spent in Edge.compareOne, in milliseconds.
+     */
+    long getCompareOneMillis();
+    
+    /**
+     * Set every count, time and peak back to zero.
+     */
+    void reset();
+}
\ No newline at end of file
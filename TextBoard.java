@@ -1,5 +1,8 @@
 import java.util.*;
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 
 /**
  * @author  Matheson Longton
@@ -15,40 +18,49 @@ public interface TextBoard {
     
     /**
      * Read a text file and convert it to a 2D array of characters representing the tiles on a board.
-     * Since most grids are assumed to be rectangular, each line is padded with null characters to reach the length of the longest line.
+     * Since most grids are assumed to be rectangular, each line is padded with null characters to reach the length of the longest line.  Empty lines are skipped.
+     * The file is memory-mapped and scanned once to find the line breaks, then each line is copied straight into its row, so the time taken is linear in the size of the file.  Board files are plain ASCII, so each byte is one character.
      *
      * @param fileName The file to attempt to open.
      * @throws IOException if the file cannot be read for any reason.
      * @return An array of characters.
      */
     static char[][] readBoard(String fileName) throws IOException {
-        FileReader flRdr = new FileReader(fileName);
-        ArrayList<Character> rawFile = new ArrayList<Character>();
-        int len = 0, cur;
-        while ((cur = flRdr.read()) > -1) {
-            rawFile.add((char)cur);
-        }
-        flRdr.close();
-        if (!rawFile.get(rawFile.size()-1).equals('\n')) rawFile.add('\n');
-        ArrayList<char[]> file = new ArrayList<char[]>();
-        int maxLength = 0, nextRow;
-        while ((nextRow = rawFile.indexOf('\n')) > -1) {
-            char[] thisLine = new char[nextRow];
-            for (int i = 0; i < nextRow; i++) {
-                thisLine[i] = rawFile.remove(0);
+        MappedByteBuffer data;
+        try (FileChannel ch = FileChannel.open(Paths.get(fileName),StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("The file "+fileName+" is too large to be a board.");
             }
-            if (thisLine.length > 0) {
-                file.add(thisLine);
-                if (thisLine.length > maxLength) maxLength = thisLine.length;
+            data = ch.map(FileChannel.MapMode.READ_ONLY,0,ch.size());
+        }
+        int length = data.limit();
+        //the start of each non-empty line, followed by its end
+        int[] bounds = new int[64];
+        int nLines = 0, maxLength = 0, lineStart = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && data.get(i) != '\n') continue;
+            if (i > lineStart) {
+                if (2*nLines+2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds,2*bounds.length);
+                }
+                bounds[2*nLines] = lineStart;
+                bounds[2*nLines+1] = i;
+                nLines++;
+                maxLength = Math.max(maxLength,i-lineStart);
             }
-            rawFile.remove(0);
+            lineStart = i+1;
+        }
+        if (nLines == 0) {
+            return new char[1][1];
         }
-        for (int i = 0; i < file.size(); i++) {
-            if (file.get(i).length < maxLength) {
-                file.set(i,Arrays.copyOf(file.get(i),maxLength));
+        char[][] file = new char[nLines][maxLength];
+        for (int j = 0; j < nLines; j++) {
+            char[] row = file[j];
+            for (int i = bounds[2*j]; i < bounds[2*j+1]; i++) {
+                row[i-bounds[2*j]] = (char)(data.get(i) & 0xFF);
             }
         }
-        return file.toArray(new char[1][1]);
+        return file;
     }
     
     /**
@@ -7,13 +7,20 @@ import java.util.*;
  * A class to represent a generic tile of a Minesweeper board.  Each tile either has a mine on it or must present the number of adjacent tiles with mines once it is revealed.  This class does not assume any organizational structure such as a grid, and could be used to play Minesweeper on a more general graph.
  */
 public class Tile {
-    private boolean hasMine, revealed;
-    public boolean flagged;
+    private boolean hasMine, revealed, flagged;
     private int adjacent;
     /**
-     * A list of all Tiles which are adjacent to this one.  Since Tiles must be created one at a time, this can be filled after the Tile is created.
+     * A dense index for this Tile within its Board, or -1 if it has not been numbered.
      */
-    public ArrayList<Tile> neighbours;
+    private int id = -1;
+    /**
+     * A list of all Tiles which are adjacent to this one, for Tiles which are not part of a TileGraph.  Since Tiles must be created one at a time, this is filled after the Tile is created by addNeighbour.
+     */
+    private ArrayList<Tile> neighbours;
+    /**
+     * The adjacency of the Board containing this Tile, once the Board has built one.
+     */
+    private TileGraph graph;
     /**
      * An estimate of the maximum number of neighbours each Tile has.  Used as the initial size of the list of neighbours, this does not prevent it from growing as needed.
      */
@@ -31,7 +38,59 @@ public class Tile {
         this.revealed = isStart;
         this.flagged = false;
         this.adjacent = numAdjacent;
-        this.neighbours = new ArrayList<Tile>(numNeighbours);
+    }
+    
+    /**
+     * @return The dense index of this Tile within its Board, or -1 if the Board has not numbered its Tiles.
+     */
+    public int getId() {
+        return id;
+    }
+    
+    /**
+     * Assign a dense index to this Tile.  This should only be done by the Board containing it, and each Tile of a Board must get a different index.
+     *
+     * @param i The index for this Tile.
+     */
+    public void setId(int i) {
+        id = i;
+    }
+    
+    /**
+     * Record that another Tile is adjacent to this one.  This is only needed for Tiles whose Board does not build a TileGraph directly.
+     *
+     * @param t A neighbour of this Tile.
+     */
+    public void addNeighbour(Tile t) {
+        if (neighbours == null) {
+            neighbours = new ArrayList<Tile>(numNeighbours);
+        }
+        neighbours.add(t);
+    }
+    
+    /**
+     * Get all Tiles which are adjacent to this one.
+     *
+     * @return A read-only list of this Tile's neighbours.
+     */
+    public List<Tile> neighbours() {
+        if (graph != null) {
+            return graph.neighbours(id);
+        }
+        if (neighbours == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(neighbours);
+    }
+    
+    /**
+     * Use the adjacency stored in a Board's TileGraph instead of a list in this Tile.  The Tile must already have its id.
+     *
+     * @param g The graph containing this Tile.
+     */
+    public void setGraph(TileGraph g) {
+        graph = g;
+        neighbours = null;
     }
     
     /**
@@ -41,6 +100,22 @@ public class Tile {
         return revealed;
     }
     
+    /**
+     * @return true if this Tile has been flagged as having a mine.
+     */
+    public boolean isFlagged() {
+        return flagged;
+    }
+    
+    /**
+     * Check whether this Tile has a mine without revealing it.  The solver must never use this, since it would be cheating: it is only for saving the layout of a Board.
+     *
+     * @return true if this Tile has a mine.
+     */
+    boolean isMined() {
+        return hasMine;
+    }
+    
     /**
      * Get the number of adjacent Tiles with mines.
      *
@@ -91,7 +166,7 @@ public class Tile {
      * @return An ArrayList containing all Tiles which are adjacent to this but not themselves revealed.
      */
     public Collection<Tile> hiddenNeighbours() {
-        ArrayList<Tile> hN = new ArrayList<Tile>(neighbours);
+        ArrayList<Tile> hN = new ArrayList<Tile>(neighbours());
         for (int i = 0; i < hN.size(); ) {
             if (hN.get(i).isRevealed()) {
                 hN.remove(i);
@@ -104,10 +179,11 @@ public class Tile {
     }
     
     public String toString() {
-        if (revealed && adjacent < 0) return "X";
-        else if (revealed && !flagged) return (adjacent==0?" ":""+adjacent);
-        else if (revealed && flagged) return "?";
-        else if (flagged) return "*";
+        int adjacent = adjacentMines();
+        if (isRevealed() && adjacent < 0) return "X";
+        else if (isRevealed() && !isFlagged()) return (adjacent==0?" ":""+adjacent);
+        else if (isRevealed() && isFlagged()) return "?";
+        else if (isFlagged()) return "*";
         else return ".";
     }
     
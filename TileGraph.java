@@ -0,0 +1,115 @@
+import java.lang.*;
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * The adjacency of all the Tiles on a Board, stored in compressed sparse row form.  Each Tile is known by its dense id, the neighbours of Tile i are the ids neighbourIds[firstNeighbour[i]] to neighbourIds[firstNeighbour[i+1]-1], and the Tile objects themselves can be looked up by id.  This replaces a separate list of neighbours in every Tile with two int arrays for the whole Board.
+ */
+public class TileGraph {
+    private Tile[] tiles;
+    private int[] firstNeighbour, neighbourIds;
+    
+    /**
+     * Create a graph from arrays which have already been filled.  The arrays are not copied.
+     *
+     * @param   tiles The Tile with each id, or null for ids which are not used.
+     * @param   firstNeighbour For each id, the position in neighbourIds of its first neighbour.  This has one more entry than tiles, holding the length of neighbourIds.
+     * @param   neighbourIds The ids of the neighbours of every Tile, in order of id.
+     */
+    public TileGraph(Tile[] tiles, int[] firstNeighbour, int[] neighbourIds) {
+        this.tiles = tiles;
+        this.firstNeighbour = firstNeighbour;
+        this.neighbourIds = neighbourIds;
+    }
+    
+    /**
+     * Constructor for subclasses which find Tiles and their neighbours some other way, and override every method which looks them up.
+     */
+    protected TileGraph() {
+    }
+    
+    /**
+     * Build a graph from Tiles which already have ids and lists of neighbours.
+     *
+     * @param   allTiles Every Tile of the Board.  Each must have a distinct id.
+     * @return  A graph with the same adjacency as the Tiles' own lists.
+     */
+    public static TileGraph fromNeighbourLists(Collection<Tile> allTiles) {
+        int limit = 0, nLinks = 0;
+        for (Tile t : allTiles) {
+            limit = Math.max(limit,t.getId()+1);
+            nLinks += t.neighbours().size();
+        }
+        Tile[] byId = new Tile[limit];
+        for (Tile t : allTiles) {
+            byId[t.getId()] = t;
+        }
+        int[] first = new int[limit+1], ids = new int[nLinks];
+        int k = 0;
+        for (int i = 0; i < limit; i++) {
+            first[i] = k;
+            if (byId[i] == null) continue;
+            for (Tile u : byId[i].neighbours()) {
+                ids[k++] = u.getId();
+            }
+        }
+        first[limit] = k;
+        return new TileGraph(byId,first,ids);
+    }
+    
+    /**
+     * @return  One more than the largest id in this graph.  Arrays of this length can be indexed by Tile id.
+     */
+    public int size() {
+        return tiles.length;
+    }
+    
+    /**
+     * @param   id A Tile id.
+     * @return  The Tile with that id, or null if there is none.
+     */
+    public Tile getTile(int id) {
+        return tiles[id];
+    }
+    
+    /**
+     * @param   id A Tile id.
+     * @return  The number of neighbours of that Tile.
+     */
+    public int degree(int id) {
+        return firstNeighbour[id+1] - firstNeighbour[id];
+    }
+    
+    /**
+     * @param   id A Tile id.
+     * @param   k Which neighbour to look up, from 0 to degree(id)-1.
+     * @return  The id of the k'th neighbour of the Tile.
+     */
+    public int neighbourId(int id, int k) {
+        return neighbourIds[firstNeighbour[id]+k];
+    }
+    
+    /**
+     * @param   id A Tile id.
+     * @return  A read-only list of the neighbours of that Tile, backed by this graph.
+     */
+    public List<Tile> neighbours(final int id) {
+        return new NeighbourList(id);
+    }
+    
+    private class NeighbourList extends AbstractList<Tile> implements RandomAccess {
+        private int start, end;
+        NeighbourList(int id) {
+            start = firstNeighbour[id];
+            end = firstNeighbour[id+1];
+        }
+        public Tile get(int k) {
+            if (k < 0 || start+k >= end) throw new IndexOutOfBoundsException();
+            return tiles[neighbourIds[start+k]];
+        }
+        public int size() {
+            return end - start;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,294 @@
+import java.lang.*;
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A map from the Tiles of one Board to values, stored in arrays indexed by Tile id instead of a hash table.  The arrays are split into pages which are only allocated once a Tile in their range is added, and the table of pages only covers the range of pages in use, so a map holding a small region of a very large Board stays small.  Tiles without ids are kept in an ordinary HashMap, and the null key is allowed.
+ *
+ * @param <V> The type of the values.
+ */
+public class TileMap<V> extends AbstractMap<Tile,V> {
+    private static final int pageBits = 10, pageSize = 1 << pageBits;
+    private Tile[][] keys;
+    private Object[][] values;
+    private int[] pageCounts;
+    /**
+     * The page number of keys[0].
+     */
+    private int firstPage;
+    private HashMap<Tile,V> unnumbered;
+    private boolean hasNullKey;
+    private V nullValue;
+    private int size;
+    
+    /**
+     * Create an empty map for the Tiles of a Board.
+     */
+    public TileMap() {
+        keys = new Tile[0][];
+        values = new Object[0][];
+        pageCounts = new int[0];
+        unnumbered = new HashMap<Tile,V>();
+    }
+    
+    /**
+     * Create an empty map whose table of pages already covers a range of ids, for filling with many Tiles at once.  The pages themselves are still only allocated when a Tile in their range is added, and ids outside the range can be added as usual.
+     *
+     * @param   firstId The smallest id expected.
+     * @param   lastId The largest id expected.
+     */
+    public TileMap(int firstId, int lastId) {
+        this();
+        if (firstId < 0 || lastId < firstId) return;
+        firstPage = firstId >>> pageBits;
+        int pages = (lastId >>> pageBits) - firstPage + 1;
+        keys = new Tile[pages][];
+        values = new Object[pages][];
+        pageCounts = new int[pages];
+    }
+    
+    /**
+     * Find the page holding an id, adding it (and growing the table of pages) if needed.
+     *
+     * @param   p The page number.
+     * @return  The index of the page in keys and values.
+     */
+    private int ensurePage(int p) {
+        if (keys.length == 0) {
+            firstPage = p;
+        }
+        if (p < firstPage) {
+            int shift = firstPage - p;
+            keys = shifted(keys,shift,keys.length+shift);
+            values = shifted(values,shift,values.length+shift);
+            int[] counts = new int[pageCounts.length+shift];
+            System.arraycopy(pageCounts,0,counts,shift,pageCounts.length);
+            pageCounts = counts;
+            firstPage = p;
+        }
+        else if (p-firstPage >= keys.length) {
+            int n = Math.max(p-firstPage+1,2*keys.length);
+            keys = Arrays.copyOf(keys,n);
+            values = Arrays.copyOf(values,n);
+            pageCounts = Arrays.copyOf(pageCounts,n);
+        }
+        int i = p - firstPage;
+        if (keys[i] == null) {
+            keys[i] = new Tile[pageSize];
+            values[i] = new Object[pageSize];
+        }
+        return i;
+    }
+    
+    private static <E> E[] shifted(E[] a, int shift, int length) {
+        E[] result = Arrays.copyOf(a,length);
+        Arrays.fill(result,null);
+        System.arraycopy(a,0,result,shift,a.length);
+        return result;
+    }
+    
+    /**
+     * @param   id A Tile id.
+     * @return  The index of the page holding id in keys and values, or -1 if there is no such page.
+     */
+    private int pageOf(int id) {
+        int i = (id >>> pageBits) - firstPage;
+        return (i >= 0 && i < keys.length && keys[i] != null ? i : -1);
+    }
+    
+    /**
+     * @param   o A possible key.
+     * @return  The id of o if it is a numbered Tile, or -1 otherwise.
+     */
+    private static int idOf(Object o) {
+        return (o instanceof Tile ? ((Tile)o).getId() : -1);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean containsKey(Object o) {
+        if (o == null) return hasNullKey;
+        int id = idOf(o);
+        if (id < 0) return unnumbered.containsKey(o);
+        int p = pageOf(id);
+        return p >= 0 && keys[p][id & (pageSize-1)] != null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(Object o) {
+        if (o == null) return nullValue;
+        int id = idOf(o);
+        if (id < 0) return unnumbered.get(o);
+        int p = pageOf(id);
+        if (p < 0) return null;
+        return (V)values[p][id & (pageSize-1)];
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V put(Tile t, V v) {
+        if (t == null) {
+            V old = nullValue;
+            if (!hasNullKey) size++;
+            hasNullKey = true;
+            nullValue = v;
+            return old;
+        }
+        int id = t.getId();
+        if (id < 0) {
+            if (!unnumbered.containsKey(t)) size++;
+            return unnumbered.put(t,v);
+        }
+        int p = ensurePage(id >>> pageBits), o = id & (pageSize-1);
+        if (keys[p][o] == null) {
+            size++;
+            pageCounts[p]++;
+        }
+        keys[p][o] = t;
+        V old = (V)values[p][o];
+        values[p][o] = v;
+        return old;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V remove(Object k) {
+        if (k == null) {
+            V old = nullValue;
+            if (hasNullKey) size--;
+            hasNullKey = false;
+            nullValue = null;
+            return old;
+        }
+        int id = idOf(k);
+        if (id < 0) {
+            if (unnumbered.containsKey(k)) size--;
+            return unnumbered.remove(k);
+        }
+        int p = pageOf(id), o = id & (pageSize-1);
+        if (p < 0 || keys[p][o] == null) return null;
+        V old = (V)values[p][o];
+        keys[p][o] = null;
+        values[p][o] = null;
+        size--;
+        if (--pageCounts[p] == 0) {
+            keys[p] = null;
+            values[p] = null;
+        }
+        return old;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys,null);
+        Arrays.fill(values,null);
+        Arrays.fill(pageCounts,0);
+        unnumbered.clear();
+        hasNullKey = false;
+        nullValue = null;
+        size = 0;
+    }
+    
+    public Set<Map.Entry<Tile,V>> entrySet() {
+        return new AbstractSet<Map.Entry<Tile,V>>() {
+            public int size() {
+                return size;
+            }
+            public Iterator<Map.Entry<Tile,V>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+    
+    /**
+     * Iterates over the null key, then the pages in order of id, then the Tiles without ids.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<Tile,V>> {
+        private boolean nullPending = hasNullKey;
+        private int page = 0, offset = -1;
+        private Iterator<Map.Entry<Tile,V>> rest = null;
+        private Tile last;
+        private boolean lastWasUnnumbered;
+        
+        EntryIterator() {
+            advance();
+        }
+        
+        /**
+         * Move (page, offset) to the next occupied slot, or past the last page.
+         */
+        private void advance() {
+            offset++;
+            while (page < keys.length) {
+                if (keys[page] != null) {
+                    while (offset < pageSize) {
+                        if (keys[page][offset] != null) return;
+                        offset++;
+                    }
+                }
+                page++;
+                offset = 0;
+            }
+        }
+        
+        public boolean hasNext() {
+            if (nullPending || page < keys.length) return true;
+            if (rest == null) rest = unnumbered.entrySet().iterator();
+            return rest.hasNext();
+        }
+        
+        public Map.Entry<Tile,V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            lastWasUnnumbered = false;
+            if (nullPending) {
+                nullPending = false;
+                last = null;
+                return new Entry(null);
+            }
+            if (page < keys.length) {
+                last = keys[page][offset];
+                advance();
+                return new Entry(last);
+            }
+            lastWasUnnumbered = true;
+            return rest.next();
+        }
+        
+        public void remove() {
+            if (lastWasUnnumbered) {
+                rest.remove();
+                size--;
+            }
+            else {
+                TileMap.this.remove(last);
+            }
+        }
+    }
+    
+    /**
+     * A map entry which reads and writes through to the map.
+     */
+    private class Entry implements Map.Entry<Tile,V> {
+        private Tile key;
+        Entry(Tile k) {
+            key = k;
+        }
+        public Tile getKey() {
+            return key;
+        }
+        public V getValue() {
+            return get(key);
+        }
+        public V setValue(V v) {
+            return put(key,v);
+        }
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return Objects.equals(key,e.getKey()) && Objects.equals(getValue(),e.getValue());
+        }
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+    }
+}
\ No newline at end of file
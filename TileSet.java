@@ -0,0 +1,108 @@
+import java.lang.*;
+import java.util.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * A set of Tiles from one Board, stored as a bitset over their ids.  This takes one bit per Tile of the Board, which is far smaller than a HashSet when most of the Board is included.  Tiles without ids are kept in an ordinary HashSet.
+ */
+public class TileSet extends AbstractSet<Tile> {
+    private TileGraph graph;
+    private BitSet members;
+    private HashSet<Tile> unnumbered;
+    private int size;
+    
+    /**
+     * Create an empty set for the Tiles of a Board.
+     *
+     * @param   g The graph of the Board, used to find Tiles by id.  This may be null if the Tiles are not numbered.
+     */
+    public TileSet(TileGraph g) {
+        graph = g;
+        members = new BitSet(g == null ? 0 : g.size());
+        unnumbered = new HashSet<Tile>();
+    }
+    
+    public boolean add(Tile t) {
+        if (graph == null || t.getId() < 0) {
+            if (!unnumbered.add(t)) return false;
+        }
+        else {
+            if (members.get(t.getId())) return false;
+            members.set(t.getId());
+        }
+        size++;
+        return true;
+    }
+    
+    /**
+     * Add every Tile with an id in a range, without needing the Tile objects.
+     *
+     * @param   from The first id to add.
+     * @param   to One more than the last id to add.
+     */
+    public void addIds(int from, int to) {
+        if (from >= to) return;
+        size -= members.get(from,to).cardinality();
+        members.set(from,to);
+        size += to-from;
+    }
+    
+    public boolean contains(Object o) {
+        if (!(o instanceof Tile)) return false;
+        Tile t = (Tile)o;
+        if (graph == null || t.getId() < 0) return unnumbered.contains(t);
+        return members.get(t.getId());
+    }
+    
+    public boolean remove(Object o) {
+        if (!contains(o)) return false;
+        Tile t = (Tile)o;
+        if (graph == null || t.getId() < 0) {
+            unnumbered.remove(t);
+        }
+        else {
+            members.clear(t.getId());
+        }
+        size--;
+        return true;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public void clear() {
+        members.clear();
+        unnumbered.clear();
+        size = 0;
+    }
+    
+    public Iterator<Tile> iterator() {
+        return new Iterator<Tile>() {
+            private int next = members.nextSetBit(0), last = -1;
+            private Iterator<Tile> rest = unnumbered.iterator();
+            public boolean hasNext() {
+                return next >= 0 || rest.hasNext();
+            }
+            public Tile next() {
+                if (next >= 0) {
+                    last = next;
+                    next = members.nextSetBit(next+1);
+                    return graph.getTile(last);
+                }
+                last = -1;
+                return rest.next();
+            }
+            public void remove() {
+                if (last >= 0) {
+                    members.clear(last);
+                }
+                else {
+                    rest.remove();
+                }
+                size--;
+            }
+        };
+    }
+}
\ No newline at end of file
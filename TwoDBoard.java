@@ -12,13 +12,13 @@ import java.math.*;
 public abstract class TwoDBoard extends Board {
     protected ArrayList<ArrayList<Tile>> grid;
     /**
-     * The dimensions of the Board.
+     * The packed state of every site when this Board uses compact storage, in which case grid is null and Tiles are views of this.  It is null otherwise.
      */
-    public final int width, height;
+    protected CellGrid cells;
     /**
-     * Indicates whether information about guesses should be written to stdout.
+     * The dimensions of the Board.
      */
-    public boolean printProbability;
+    public final int width, height;
     
     /**
      * Partial constructor for subclasses to set basic properties.
@@ -26,9 +26,10 @@ public abstract class TwoDBoard extends Board {
      * @param width The board's width
      * @param height The board's height
      * @param n The number of mines
+     * @param random The source of randomness for this Board.
      */
-    protected TwoDBoard(int width, int height, int n) {
-        super(n);
+    protected TwoDBoard(int width, int height, int n, SplittableRandom random) {
+        super(n, random);
         this.width = width;
         this.height = height;
     }
@@ -42,21 +43,191 @@ public abstract class TwoDBoard extends Board {
      */
     public ArrayList<ArrayList<Boolean>> setRandomMines(int nMines) {
         ArrayList<ArrayList<Boolean>> mGrid = initGrid(width, height, Boolean.class, Boolean.FALSE);
-        int n = 0;
-        while (n < nMines) {
-            int x = (int)(Math.random()*width);
-            int y = (int)(Math.random()*height);
-            try { //Not very efficient, but quite general.  Subclasses could override it for performance.
-                if (!getGrid(x,y,mGrid)) {
-                    setGrid(x,y,Boolean.TRUE,mGrid);
-                    n++;
-                }
+        byte[] sites = placeMines(nMines);
+        for (int k = 0; k < sites.length; k++) {
+            if ((sites[k] & CellGrid.MINED) != 0) {
+                setGrid(k%width,k/width,Boolean.TRUE,mGrid);
             }
-            catch (IndexOutOfBoundsException e) {}
         }
         return mGrid;
     }
     
+    /**
+     * Randomly choose the sites of mines with Floyd's algorithm, over the flat index x+y*width.  For each of the last few positions j it picks a random site up to j, and takes j itself instead if that site was already picked, which gives every set of sites the same chance.  Only as many picks are made as there are mines (or safe sites, if that is fewer), so the time taken does not depend on the density of mines, and the picks are marked straight into the bytes that become the board, so nothing else of the size of the board is needed.
+     * Every site of the width*height grid is used.  A subclass with sites that are not allowed should override this.
+     *
+     * @param nMines The number of mines to place.
+     * @return An array indexed by x+y*width in the layout of CellGrid, with the MINED bit set for nMines sites and nothing else set.
+     */
+    protected byte[] placeMines(int nMines) {
+        int nSites = width*height;
+        if (nMines > nSites) {
+            throw new IllegalArgumentException("Cannot place "+nMines+" mines on "+nSites+" sites.");
+        }
+        byte[] sites = new byte[nSites];
+        //choose whichever of the mines and the safe sites is smaller, and fill in the rest
+        boolean chooseMines = (nMines <= nSites/2);
+        int toChoose = (chooseMines ? nMines : nSites-nMines);
+        byte chosen = (byte)(chooseMines ? CellGrid.MINED : 0);
+        if (!chooseMines) {
+            Arrays.fill(sites,(byte)CellGrid.MINED);
+        }
+        for (int j = nSites-toChoose; j < nSites; j++) {
+            int r = random.nextInt(j+1);
+            sites[(sites[r] == chosen) ? j : r] = chosen;
+        }
+        return sites;
+    }
+    
+    /**
+     * Count the mines next to every site in one pass.  Each mine adds one to the count of each of its neighbours, so only the mines are visited rather than every neighbour of every site.
+     *
+     * @param sites An array indexed by x+y*width in the layout of CellGrid, as returned by placeMines.  The counts are added to its ADJACENT bits.
+     */
+    protected void countAdjacent(byte[] sites) {
+        int[] nbrs = new int[maxNeighbours()];
+        for (int k = 0; k < sites.length; k++) {
+            if ((sites[k] & CellGrid.MINED) == 0) continue;
+            int n = neighbourIndices(k%width,k/width,nbrs);
+            for (int m = 0; m < n; m++) {
+                sites[nbrs[m]]++;
+            }
+        }
+    }
+    
+    /**
+     * Choose a random safe site with as few neighbouring mines as possible.  A histogram of the adjacency counts of safe sites gives the smallest count and the number of sites with it, so one more pass is enough to find the chosen site.
+     *
+     * @param sites An array indexed by x+y*width in the layout of CellGrid, with the mines placed and counted.
+     * @return The flat index of the chosen site, or -1 if every site has a mine.
+     */
+    protected int pickStart(byte[] sites) {
+        int[] histogram = new int[maxNeighbours()+1];
+        for (int k = 0; k < sites.length; k++) {
+            if ((sites[k] & CellGrid.MINED) == 0) histogram[sites[k] & CellGrid.ADJACENT]++;
+        }
+        int fewest = 0;
+        while (fewest < histogram.length && histogram[fewest] == 0) {
+            fewest++;
+        }
+        if (fewest == histogram.length) return -1;
+        int which = random.nextInt(histogram[fewest]);
+        for (int k = 0; k < sites.length; k++) {
+            if ((sites[k] & CellGrid.MINED) == 0 && (sites[k] & CellGrid.ADJACENT) == fewest && which-- == 0) {
+                return k;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Fill the grid with new Tiles and randomly placed mines, then number and link them.  This is the shared body of the constructors which generate random boards.
+     *
+     * @param safeStart Set to true to pick a clear starting tile which will be revealed initially.
+     * @param compact Set to true to pack the state of each site into a CellGrid instead of creating a Tile for it.
+     */
+    protected void generateTiles(boolean safeStart, boolean compact) {
+        byte[] sites = placeMines(N);
+        countAdjacent(sites);
+        int start = (safeStart ? pickStart(sites) : -1);
+        fill(sites,compact);
+        if (start >= 0) {
+            Tile toStart = getGrid(start%width,start/width);
+            toStart.reveal();
+            addWorkingTile(toStart);
+        }
+    }
+    
+    /**
+     * Fill the grid from a binary board, then flag and reveal the Tiles which were flagged and revealed when it was saved.  This is the shared body of the constructors which load binary boards.  The mines are copied from the file straight into the bytes of a CellGrid, and the adjacent mine counts are recounted from them in the same single pass used for random boards.
+     * If the file is a checkpoint then the working Edge is restored from it as it was saved.  Otherwise it is built from the revealed Tiles.
+     *
+     * @param file The saved board, which must have the same width and height as this Board.
+     * @param compact Set to true to pack the state of each site into a CellGrid instead of creating a Tile for it.
+     * @throws UncheckedIOException if the file is a checkpoint with a corrupt solver state.
+     */
+    protected void loadTiles(BinaryBoard file, boolean compact) {
+        int nSites = width*height;
+        byte[] sites = new byte[nSites];
+        for (int k = file.nextMined(0); k >= 0 && k < nSites; k = file.nextMined(k+1)) {
+            sites[k] = (byte)CellGrid.MINED;
+        }
+        countAdjacent(sites);
+        fill(sites,compact);
+        LinkedList<Tile> startTiles = new LinkedList<Tile>();
+        for (int k = 0; k < nSites; k++) {
+            if (file.isFlagged(k)) {
+                getGrid(k%width,k/width).flag();
+            }
+            else if (file.isRevealed(k)) {
+                Tile t = getGrid(k%width,k/width);
+                t.reveal();
+                startTiles.add(t);
+            }
+        }
+        if (file.hasSolverState()) {
+            try {
+                readSolverState(file.solverState());
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        addWorkingTiles(startTiles);
+    }
+    
+    /**
+     * Build the Board's storage from the packed sites, either by keeping them as a CellGrid or by creating a Tile for each.
+     *
+     * @param sites An array indexed by x+y*width in the layout of CellGrid, with the mines placed and counted.
+     * @param compact Set to true to keep sites as a CellGrid instead of creating Tiles.
+     */
+    private void fill(byte[] sites, boolean compact) {
+        if (compact) {
+            fillCells(sites);
+        }
+        else {
+            fillGrid(sites);
+        }
+    }
+    
+    /**
+     * Pack every site into a CellGrid, which also serves as the TileGraph, instead of creating Tiles.
+     *
+     * @param sites The packed sites, which the CellGrid keeps.
+     */
+    private void fillCells(byte[] sites) {
+        cells = new CellGrid(this,sites);
+        graph = cells;
+        TileSet remaining = new TileSet(graph);
+        remaining.addIds(0,width*height);
+        remainingTiles = remaining;
+        completedTiles = new TileSet(graph);
+    }
+    
+    /**
+     * Create a Tile for every site, then number and link them.
+     *
+     * @param sites The packed sites.
+     */
+    private void fillGrid(byte[] sites) {
+        grid = initGrid(width, height, Tile.class);
+        remainingTiles = new HashSet<Tile>(width*height*4/3+1);
+        completedTiles = new LinkedList<Tile>();
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                int k = i+j*width;
+                boolean mined = ((sites[k] & CellGrid.MINED) != 0);
+                SquareTile newTile = new SquareTile(mined,false,(mined ? -1 : sites[k] & CellGrid.ADJACENT),i,j);
+                setGrid(i,j,newTile);
+                remainingTiles.add(newTile);
+            }
+        }
+        numberTiles();
+        linkNeighbours();
+    }
+    
     /**
      * Find the number of adjacent mines to any site in a boolean grid.
      *
@@ -77,34 +248,78 @@ public abstract class TwoDBoard extends Board {
     
     /**
      * Connect each Tile in this board's underlying grid to all of its neighbours.
-     * This adds each Tile's neighbours to the neighbours List in the Tile.
+     * This builds the board's TileGraph in compressed sparse row form, so the Tiles must already be numbered.
      */
     public void linkNeighbours() {
+        Tile[] byId = new Tile[width*height], bySite = new Tile[width*height];
+        int[] first = new int[byId.length+1], nbrs = new int[maxNeighbours()];
+        int nLinks = 0;
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < height; j++) {
-                for (GridCoordinate z : neighbourCoordinates(i,j)) {
-                    if (getGrid(i,j) != null && getGrid(z.x,z.y) != null) {
-                        getGrid(i,j).neighbours.add(getGrid(z.x,z.y));
+                bySite[i+j*width] = getGrid(i,j);
+            }
+        }
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                Tile t = bySite[i+j*width];
+                if (t == null) continue;
+                byId[t.getId()] = t;
+                int n = neighbourIndices(i,j,nbrs);
+                for (int m = 0; m < n; m++) {
+                    if (bySite[nbrs[m]] != null) {
+                        first[t.getId()+1]++;
+                        nLinks++;
                     }
                 }
             }
         }
+        for (int id = 0; id < byId.length; id++) {
+            first[id+1] += first[id];
+        }
+        int[] ids = new int[nLinks], filled = Arrays.copyOf(first,byId.length);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                Tile t = bySite[i+j*width];
+                if (t == null) continue;
+                int id = t.getId();
+                int n = neighbourIndices(i,j,nbrs);
+                for (int m = 0; m < n; m++) {
+                    if (bySite[nbrs[m]] != null) {
+                        ids[filled[id]++] = bySite[nbrs[m]].getId();
+                    }
+                }
+            }
+        }
+        graph = new TileGraph(byId,first,ids);
+        for (Tile t : byId) {
+            if (t != null) t.setGraph(graph);
+        }
+    }
+    
+    /**
+     * Number the Tiles of this board by their position in the grid, x+y*width.  Neighbouring Tiles get nearby indices, which keeps the bitsets of MineSets short.  The TileGraph is built afterwards by linkNeighbours.
+     */
+    protected void numberTiles() {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                if (getGrid(i,j) != null) {
+                    getGrid(i,j).setId(i+j*width);
+                }
+            }
+        }
     }
     
     public Tile pickRandomStart(List<? extends List<Boolean>> mGrid) {
         if (remainingN == remainingTiles.size()) return null;
-        ArrayList<Tile> validCandidates = new ArrayList<Tile>(remainingTiles.size()-N);
-        for (int neighbourCount = 0; validCandidates.size() == 0; neighbourCount++) {
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    if (!getGrid(x,y,mGrid) && getAdjacent(x,y,mGrid) == neighbourCount) {
-                        validCandidates.add(getGrid(x,y));
-                    }
-                }
+        byte[] sites = new byte[width*height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (getGrid(x,y,mGrid)) sites[x+y*width] = (byte)CellGrid.MINED;
             }
         }
-        int whichCandidate = (int)(Math.random()*validCandidates.size());
-        return validCandidates.get(whichCandidate);
+        countAdjacent(sites);
+        int start = pickStart(sites);
+        return (start < 0 ? null : getGrid(start%width,start/width));
     }
 
     /**
@@ -114,7 +329,32 @@ public abstract class TwoDBoard extends Board {
      * @param j The y coordinate of the site to find neighbours of.
      * @return A list of GridCoordinate objects representing the neighbours.
      */
-    public abstract LinkedList<GridCoordinate> neighbourCoordinates(int i, int j);
+    public LinkedList<GridCoordinate> neighbourCoordinates(int i, int j) {
+        LinkedList<GridCoordinate> result = new LinkedList<GridCoordinate>();
+        int[] nbrs = new int[maxNeighbours()];
+        int n = neighbourIndices(i,j,nbrs);
+        for (int m = 0; m < n; m++) {
+            result.add(new GridCoordinate(nbrs[m]%width,nbrs[m]/width));
+        }
+        return result;
+    }
+    
+    /**
+     * Find the neighbours of a grid point as flat indices x+y*width, without creating any objects.  This is the definition of the lattice which all of the other neighbour methods are based on.
+     *
+     * @param i The x coordinate of the site to find neighbours of.
+     * @param j The y coordinate of the site to find neighbours of.
+     * @param out An array with room for at least maxNeighbours() indices, which the neighbours are written to.
+     * @return The number of neighbours written to out.
+     */
+    public abstract int neighbourIndices(int i, int j, int[] out);
+    
+    /**
+     * @return The largest number of neighbours any site in this lattice can have.
+     */
+    public int maxNeighbours() {
+        return 8;
+    }
     
     /**
      * Get the tile at a specified location in this board's underlying grid.
@@ -125,8 +365,34 @@ public abstract class TwoDBoard extends Board {
      * @throws IndexOutOfBoundsException if the coordinates (x,y) are not an allowed location for this board.
      */
     public Tile getGrid(int x, int y) {
+        if (cells != null) {
+            return cells.getTile(siteIndex(x,y));
+        }
         return getGrid(x, y, grid);
     }
+    
+    /**
+     * Find the flat index of a site, which is also the id of its Tile.
+     * Subclasses with different rules for allowed coordinates should override this along with getGrid.
+     *
+     * @param x The first coordinate.
+     * @param y The second coordinate.
+     * @return x+y*width
+     * @throws IndexOutOfBoundsException if the coordinates (x,y) are not an allowed location for this board.
+     */
+    public int siteIndex(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("("+x+","+y+") is not on the board.");
+        }
+        return x+y*width;
+    }
+    
+    /**
+     * @return true if this Board packs the state of its sites into a CellGrid instead of keeping a Tile for each.
+     */
+    public boolean isCompact() {
+        return cells != null;
+    }
     /**
      * Get the item at a specified location in a grid with the same structure as that underlying this board.
      * Subclasses should override this method with any restrictions on allowed indices, and those restrictions will take effect for the board's grid as well.
@@ -202,22 +468,31 @@ public abstract class TwoDBoard extends Board {
     }
     
     /**
-     * If information about guessing is to be shown, then do so.
+     * Tiles are numbered by their site, x+y*width, so the coordinates come straight from the id instead of a search of the grid.
      *
-     * @param   t The Tile which is about to be guessed.
-     * @param   odds The probability that the guess is safe.
+     * @param   t A Tile of this Board.
+     * @return  The horizontal coordinate of t.
      */
-    public void alertGuess(Tile t, double odds) {
-        if (printProbability) {
-            boolean printed = false;
-            for (int i = 0; !printed && i < width; i++) {
-                for (int j = 0; j < height && !printed; j++) {
-                    if (getGrid(i,j) == t) {
-                        System.out.println("Guessing "+i+","+j+" with "+(odds*100)+"% chance of success.");
-                        printed = true;
-                    }
-                }
-            }
+    public int xOf(Tile t) {
+        return (t.getId() < 0 ? -1 : t.getId()%width);
+    }
+    
+    /**
+     * @param   t A Tile of this Board.
+     * @return  The vertical coordinate of t.
+     */
+    public int yOf(Tile t) {
+        return (t.getId() < 0 ? -1 : t.getId()/width);
+    }
+    
+    /**
+     * Print guesses to stdout through the shared console SolverEvents, if asked to.  This is the meaning of the probInfo argument of the subclasses' constructors.
+     *
+     * @param   probInfo Set to true to print guessing information to stdout.
+     */
+    protected void printGuesses(boolean probInfo) {
+        if (probInfo) {
+            setEvents(SolverEvents.console());
         }
     }
         
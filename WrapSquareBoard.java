@@ -20,54 +20,83 @@ public class WrapSquareBoard extends TwoDBoard implements TextBoard {
      * @param   probInfo Set to true to print guessing information to stdout.
      */
     public WrapSquareBoard(int width, int height, int n, boolean safeStart, boolean probInfo) {
-        super(width, height, n);
-        this.printProbability = probInfo;
-        int nMines = 0;
-        ArrayList<ArrayList<Boolean>> mineGrid = setRandomMines(N);
-        grid = initGrid(width, height, Tile.class);
-        remainingTiles = new HashSet<Tile>(width*height*4/3+1);
-        completedTiles = new LinkedList<Tile>();
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                int nAdjacent;
-                if (getGrid(i,j,mineGrid)) {
-                    nAdjacent = -1;
-                }
-                else {
-                    nAdjacent = getAdjacent(i,j,mineGrid);
-                }
-                SquareTile newTile = new SquareTile(getGrid(i,j,mineGrid),false,nAdjacent,i,j);
-                setGrid(i,j,newTile);
-                remainingTiles.add(newTile);
-            }
-        }
-        linkNeighbours();
-        if (safeStart) {
-            Tile toStart = pickRandomStart(mineGrid);
-            if (toStart != null) {
-                toStart.reveal();
-                addWorkingTile(toStart);
-            }
-        }
+        this(width, height, n, safeStart, probInfo, new SplittableRandom());
     }
     
     /**
-     * Get a list of all grid points that are neighbours of a given point.
+     * Create a wrapped rectangular board
+     *
+     * @param   width The Board's width
+     * @param   height The Board's height
+     * @param   n The number of mines to be placed
+     * @param   safeStart Set to true to pick a clear starting tile which will be revealed initially.
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for placing mines and breaking ties between equally good guesses.  Boards created with identically seeded sources are identical and are played identically.
+     */
+    public WrapSquareBoard(int width, int height, int n, boolean safeStart, boolean probInfo, SplittableRandom random) {
+        this(width, height, n, safeStart, probInfo, random, false);
+    }
+    
+    /**
+     * Create a wrapped rectangular board
+     *
+     * @param   width The Board's width
+     * @param   height The Board's height
+     * @param   n The number of mines to be placed
+     * @param   safeStart Set to true to pick a clear starting tile which will be revealed initially.
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for placing mines and breaking ties between equally good guesses.  Boards created with identically seeded sources are identical and are played identically.
+     * @param   compact Set to true to pack the state of each tile into a byte instead of keeping a Tile object for it.  Tiles are then created as views when they are needed, which allows much larger boards.
+     */
+    public WrapSquareBoard(int width, int height, int n, boolean safeStart, boolean probInfo, SplittableRandom random, boolean compact) {
+        super(width, height, n, random);
+        printGuesses(probInfo);
+        generateTiles(safeStart,compact);
+    }
+    
+    /**
+     * Create a wrapped rectangular board saved as a binary board.  There is no text format for wrapped boards yet, so this is the only way to load one.
+     *
+     * @param   file The contents of the file as produced by BinaryBoard.read(fileName).
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for breaking ties between equally good guesses.
+     * @param   compact Set to true to pack the state of each tile into a byte instead of keeping a Tile object for it.
+     */
+    public WrapSquareBoard(BinaryBoard file, boolean probInfo, SplittableRandom random, boolean compact) {
+        super(file.width, file.height, file.mines, random);
+        printGuesses(probInfo);
+        loadTiles(file,compact);
+    }
+    
+    /**
+     * Find the neighbours of a grid point as flat indices x+y*width.  Coordinates past the edges wrap around to the other side.
      *
      * @param i The x coordinate of the site to find neighbours of.
-     * @param i The y coordinate of the site to find neighbours of.
-     * @return A list of GridCoordinate objects representing the neighbours.
+     * @param j The y coordinate of the site to find neighbours of.
+     * @param out An array with room for at least maxNeighbours() indices, which the neighbours are written to.
+     * @return The number of neighbours written to out.
      */
-    public LinkedList<GridCoordinate> neighbourCoordinates(int i, int j) {
-        LinkedList<GridCoordinate> result = new LinkedList<GridCoordinate>();
+    public int neighbourIndices(int i, int j, int[] out) {
+        int n = 0;
         for (int x = i-1; x < i+2; x++) {
             for (int y = j-1; y < j+2; y++) {
                 if (x != i || y != j) {
-                    result.add(new GridCoordinate(x,y));
+                    out[n++] = (x+width)%width+((y+height)%height)*width;
                 }
             }
         }
-        return result;
+        return n;
+    }
+    
+    /**
+     * Find the flat index of (x%width, y%height).
+     *
+     * @param x The first coordinate.
+     * @param y The second coordinate.
+     * @return The index of the site, after wrapping the coordinates onto the board.
+     */
+    public int siteIndex(int x, int y) {
+        return ((x%width)+width)%width+(((y%height)+height)%height)*width;
     }
     
     /**
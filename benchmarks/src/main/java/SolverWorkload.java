@@ -0,0 +1,183 @@
+import java.lang.*;
+import java.util.*;
+import java.io.*;
+import java.util.concurrent.*;
+import minesweep.bench.Workload;
+
+/**
+ * @author  Matheson Longton
+ *
+ * The solver operations measured by the benchmarks, on a board generated from a fixed seed.  The board is a strip four rows high: the top row is revealed and has no mines next to it, so the second row is clear and revealed, and the third row becomes an Edge with edgeSize Tiles described by the numbers on the second row.  The third and fourth rows have randomly placed mines.
+ */
+public class SolverWorkload implements Workload {
+    private Board board;
+    private Edge edge;
+    private ArrayList<MineSet> sets;
+    private ArrayList<MineSet[]> pairs;
+    private ArrayList<ArrayList<MinePossibility>> possibilities;
+    private int nTiles;
+    private ArrayList<Tile> component;
+    private Collection<MineSet> componentInfo;
+    
+    public void load(int edgeSize, long seed) throws IOException {
+        Random r = new Random(seed);
+        char[][] layout = new char[4][edgeSize];
+        for (int i = 0; i < edgeSize; i++) {
+            layout[0][i] = '@';
+            layout[1][i] = '0';
+            layout[2][i] = (r.nextDouble() < 0.35 ? '*' : '0');
+            layout[3][i] = (r.nextDouble() < 0.35 ? '*' : '0');
+        }
+        File f = File.createTempFile("board",".txt");
+        f.deleteOnExit();
+        PrintWriter out = new PrintWriter(new FileWriter(f));
+        for (char[] row : layout) {
+            out.println(new String(row));
+        }
+        out.close();
+        StandardBoard b = new StandardBoard(TextBoard.readBoard(f.getPath()),false);
+        board = b;
+        nTiles = 4*edgeSize;
+        edge = null;
+        sets = new ArrayList<MineSet>();
+        for (int i = 0; i < edgeSize; i++) {
+            try {
+                b.getGrid(i,1).reveal();
+            }
+            catch (BoomException e) {
+                throw new IllegalStateException("The second row should have no mines.");
+            }
+        }
+        for (int i = 0; i < edgeSize; i++) {
+            Tile t = b.getGrid(i,1);
+            sets.add(new MineSet(t.adjacentMines(),t.hiddenNeighbours()));
+            if (edge == null) {
+                edge = new Edge(t,edgeSize,board);
+            }
+            else {
+                edge.add(new Edge(t,edgeSize,board));
+            }
+        }
+        pairs = new ArrayList<MineSet[]>();
+        for (int i = 0; i < sets.size(); i++) {
+            for (int j = i+1; j < Math.min(i+3,sets.size()); j++) {
+                MineSet[] pair = {sets.get(i), sets.get(j)};
+                pairs.add(pair);
+            }
+        }
+        //the arrangements allowed by each MineSet on its own, as allPossibleEdges builds them before combining
+        ArrayList<Tile> edgeTiles = new ArrayList<Tile>(edge.edgeTiles());
+        MinePossibility undecided = new MinePossibility(edgeTiles);
+        possibilities = new ArrayList<ArrayList<MinePossibility>>();
+        for (MineSet m : sets) {
+            ArrayList<Tile> setTiles = new ArrayList<Tile>(m.tileCount());
+            for (Iterator<Tile> it = m.tileIterator(); it.hasNext();) {
+                setTiles.add(it.next());
+            }
+            ArrayList<MinePossibility> forSet = new ArrayList<MinePossibility>();
+            for (int n : m.possibleMines) {
+                for (ArrayList<Tile> mined : Edge.combinations(n,setTiles)) {
+                    MinePossibility x = new MinePossibility(undecided);
+                    for (Tile t : setTiles) {
+                        x.set(t,MineState.O);
+                    }
+                    for (Tile t : mined) {
+                        x.set(t,MineState.X);
+                    }
+                    forSet.add(x);
+                }
+            }
+            possibilities.add(forSet);
+        }
+    }
+    
+    public int splitWith() {
+        int total = 0;
+        for (MineSet[] pair : pairs) {
+            total += pair[0].splitWith(pair[1])[0].tileCount();
+        }
+        return total;
+    }
+    
+    public int addOrUpdate(boolean hashed) {
+        MineSetList list = (hashed ? new HashedMineSetList() : new MineSetList());
+        for (MineSet m : sets) {
+            list.addOrUpdate(m);
+        }
+        for (MineSet m : sets) {
+            list.addOrUpdate(m);
+        }
+        return list.size();
+    }
+    
+    public int compatible() {
+        int found = 0;
+        for (int i = 1; i < possibilities.size(); i++) {
+            for (MinePossibility x : possibilities.get(i-1)) {
+                for (MinePossibility y : possibilities.get(i)) {
+                    if (x.compatible(y) != null) {
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+    
+    public int allPossibleEdges() {
+        return edge.allPossibleEdges().size();
+    }
+    
+    public Object binomCoeff() {
+        return Board.binomCoeff(nTiles,nTiles/5);
+    }
+    
+    public void loadComponent(int tiles, long seed) throws IOException {
+        Random r = new Random(seed);
+        int width = tiles/2;
+        char[][] layout = new char[3][width];
+        for (int i = 0; i < width; i++) {
+            layout[0][i] = (r.nextDouble() < 0.3 ? '*' : '0');
+            layout[1][i] = '0';
+            layout[2][i] = (r.nextDouble() < 0.3 ? '*' : '0');
+        }
+        File f = File.createTempFile("board",".txt");
+        f.deleteOnExit();
+        PrintWriter out = new PrintWriter(new FileWriter(f));
+        for (char[] row : layout) {
+            out.println(new String(row));
+        }
+        out.close();
+        StandardBoard b = new StandardBoard(TextBoard.readBoard(f.getPath()),false);
+        Edge strip = null;
+        for (int i = 0; i < width; i++) {
+            try {
+                b.getGrid(i,1).reveal();
+            }
+            catch (BoomException e) {
+                throw new IllegalStateException("The middle row should have no mines.");
+            }
+        }
+        for (int i = 0; i < width; i++) {
+            Tile t = b.getGrid(i,1);
+            if (strip == null) {
+                strip = new Edge(t,width,b);
+            }
+            else {
+                strip.add(new Edge(t,width,b));
+            }
+        }
+        component = null;
+        for (ArrayList<Tile> c : strip.components()) {
+            if (component == null || c.size() > component.size()) {
+                component = c;
+            }
+        }
+        componentInfo = strip.componentInfo(component);
+    }
+    
+    public long countComponent(ForkJoinPool pool) {
+        EdgeEnumerator search = new EdgeEnumerator(component,componentInfo,component.size());
+        return (pool == null ? search.count() : search.count(pool)).totalArrangements();
+    }
+}
@@ -0,0 +1,21 @@
+package minesweep.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * Runs the benchmarks with the GC profiler attached, so allocation rates are reported alongside times.  Any of the usual JMH command line options can be given, for example a regular expression to select benchmarks, or -p edgeSize=16.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cl = new CommandLineOptions(args);
+        Options opts = new OptionsBuilder()
+                .parent(cl)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opts).run();
+    }
+}
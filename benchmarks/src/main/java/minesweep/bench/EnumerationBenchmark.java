@@ -0,0 +1,47 @@
+package minesweep.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * Measures how counting the arrangements of one large component scales with the number of threads in the enumeration pool.  A pool of 0 threads means the search runs on the benchmark thread without a pool, as the sequential baseline.  For example `java -jar benchmarks/target/benchmarks.jar EnumerationBenchmark -p tiles=80` on a machine with enough cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumerationBenchmark {
+    @Param({"40", "60", "80"})
+    public int tiles;
+    
+    @Param({"0", "1", "2", "4", "8", "16", "32"})
+    public int threads;
+    
+    @Param({"2"})
+    public long seed;
+    
+    private Workload work;
+    private ForkJoinPool pool;
+    
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        work = (Workload)Class.forName("SolverWorkload").getDeclaredConstructor().newInstance();
+        work.loadComponent(tiles,seed);
+        pool = (threads == 0 ? null : new ForkJoinPool(threads));
+    }
+    
+    @TearDown(Level.Trial)
+    public void close() {
+        if (pool != null) pool.shutdown();
+    }
+    
+    @Benchmark
+    public long countComponent() {
+        return work.countComponent(pool);
+    }
+}
@@ -0,0 +1,61 @@
+package minesweep.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * Microbenchmarks for the hot paths of the solver, on seeded boards with Edges of several sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+    @Param({"8", "16", "24"})
+    public int edgeSize;
+    
+    @Param({"1"})
+    public long seed;
+    
+    private Workload work;
+    
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        work = (Workload)Class.forName("SolverWorkload").getDeclaredConstructor().newInstance();
+        work.load(edgeSize,seed);
+    }
+    
+    @Benchmark
+    public int splitWith() {
+        return work.splitWith();
+    }
+    
+    @Benchmark
+    public int mineSetListAddOrUpdate() {
+        return work.addOrUpdate(false);
+    }
+    
+    @Benchmark
+    public int hashedMineSetListAddOrUpdate() {
+        return work.addOrUpdate(true);
+    }
+    
+    @Benchmark
+    public int compatible() {
+        return work.compatible();
+    }
+    
+    @Benchmark
+    public int allPossibleEdges() {
+        return work.allPossibleEdges();
+    }
+    
+    @Benchmark
+    public Object binomCoeff() {
+        return work.binomCoeff();
+    }
+}
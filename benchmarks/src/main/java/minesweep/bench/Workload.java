@@ -0,0 +1,71 @@
+package minesweep.bench;
+
+/**
+ * @author  Matheson Longton
+ *
+ * The operations measured by SolverBenchmark.  The solver classes are in the default package, which classes in a named package cannot refer to, and JMH will not generate benchmarks for the default package.  So the benchmark works through this interface, and the implementation (SolverWorkload, in the default package) is loaded once by name when the benchmark is set up.
+ */
+public interface Workload {
+    
+    /**
+     * Generate a board with a seeded random layout, save it as text and read it back with TextBoard.readBoard, then prepare the MineSets and Edge used by the other methods.
+     *
+     * @param   edgeSize The number of Tiles in the Edge.
+     * @param   seed The seed for placing mines.
+     * @throws  Exception if the board cannot be written or read.
+     */
+    void load(int edgeSize, long seed) throws Exception;
+    
+    /**
+     * Split every pair of overlapping MineSets in the Edge.
+     *
+     * @return  The total number of Tiles in the intersections, so the work cannot be optimised away.
+     */
+    int splitWith();
+    
+    /**
+     * Add every MineSet of the Edge to a new MineSetList, then add each one again to exercise the update path.
+     *
+     * @param   hashed true to use a HashedMineSetList instead of a plain MineSetList.
+     * @return  The size of the final list.
+     */
+    int addOrUpdate(boolean hashed);
+    
+    /**
+     * Combine each arrangement of mines allowed by one MineSet with each arrangement allowed by the next MineSet along the Edge.
+     *
+     * @return  The number of compatible pairs.
+     */
+    int compatible();
+    
+    /**
+     * Find all of the possible arrangements of mines on the Edge.
+     *
+     * @return  The number of arrangements.
+     */
+    int allPossibleEdges();
+    
+    /**
+     * Calculate a binomial coefficient of the size used when guessing on a board with this many Tiles.
+     *
+     * @return  The coefficient.
+     */
+    Object binomCoeff();
+    
+    /**
+     * Generate a strip three rows high with a seeded random layout, for measuring the enumeration of one large component.  The middle row is revealed and has no mines, and the rows above and below have randomly placed mines, so their Tiles form a single component joined along the strip.
+     *
+     * @param   tiles The number of Tiles in the component.
+     * @param   seed The seed for placing mines.
+     * @throws  Exception if the board cannot be written or read.
+     */
+    void loadComponent(int tiles, long seed) throws Exception;
+    
+    /**
+     * Count the arrangements of mines on the component prepared by loadComponent.
+     *
+     * @param   pool The pool to search in parallel on, or null to search on the calling thread.
+     * @return  The number of arrangements.
+     */
+    long countComponent(java.util.concurrent.ForkJoinPool pool);
+}
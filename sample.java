@@ -1,5 +1,6 @@
 import java.util.*;
 import java.io.*;
+import java.util.concurrent.*;
 import org.apache.commons.cli.*;
 
 /**
@@ -9,7 +10,7 @@ import org.apache.commons.cli.*;
  */
 public class sample {
     public static void main(String[] args) {
-        boolean detail = false, deterministicHelped = false, failure = false;
+        boolean detail = false;
         Board b = null;
         Options clOpts = defineCLOpts();
         CommandLineParser clParse = new DefaultParser();
@@ -33,109 +34,160 @@ public class sample {
         if (cl.hasOption("d")) {
             detail = true;
         }
-        if (cl.hasOption("f")) { //read board from a file
-            char[][] file;
+        if (cl.hasOption("x") && cl.hasOption("w")) {
+            System.err.println("Sorry, wraparound hexagonal grids not supported quite yet.");
+            return;
+        }
+        ForkJoinPool pool = null;
+        if (cl.hasOption("t")) {
             try {
-                file = TextBoard.readBoard(cl.getOptionValue("f"));
-            }
-            catch (IOException e) {
-                System.err.println("Error opening file: "+e.getMessage());
-                return;
+                pool = new ForkJoinPool(Integer.parseInt(cl.getOptionValue("t")));
             }
-            if (cl.hasOption("x") && cl.hasOption("w")) {
-                System.err.println("Sorry, wraparound hexagonal grids not supported quite yet.");
+            catch (Exception e) {
+                System.err.println("Error parsing number of threads: "+e.getMessage());
                 return;
             }
-            else if (cl.hasOption("x")) {
-                b = new HexBoard(file,true);
-            }
-            else if (cl.hasOption("w")) {
-                System.err.println("Sorry, reading wraparound boards from a file isn't supported yet.");
-                //b = new WrapSquareBoard(file,true);
-            }
-            else {
-                b = new StandardBoard(file,true);
-            }
         }
-        else { //generate new random board
-            int x, y, n;
-            if (cl.hasOption("s")) {
-                String[] dimensions = cl.getOptionValues("s");
-                try {
-                    x = Integer.parseInt(dimensions[0]);
-                    y = Integer.parseInt(dimensions[1]);
+        SplittableRandom random;
+        try {
+            random = (cl.hasOption("r") ? new SplittableRandom(Long.parseLong(cl.getOptionValue("r"))) : new SplittableRandom());
+        }
+        catch (Exception e) {
+            System.err.println("Error parsing seed: "+e.getMessage());
+            return;
+        }
+        if (cl.hasOption("b")) {
+            runBatch(cl,pool,random);
+            if (cl.hasOption("metrics")) System.out.println(SolverMetrics.INSTANCE);
+            return;
+        }
+        if (cl.hasOption("f")) { //read board from a file
+            char[][] file = null;
+            try {
+                if (BinaryBoard.isBinary(cl.getOptionValue("f"))) { //binary boards record their own lattice
+                    b = BinaryBoard.read(cl.getOptionValue("f")).toBoard(false,random,cl.hasOption("compact"));
                 }
-                catch (Exception e) {
-                    System.err.println("Error parsing dimensions: "+e.getMessage());
-                    return;
+                else {
+                    file = TextBoard.readBoard(cl.getOptionValue("f"));
                 }
             }
-            else {
-                x = 30;
-                y = 16;
+            catch (IOException|UncheckedIOException e) {
+                System.err.println("Error opening file: "+e.getMessage());
+                return;
             }
-            int nTiles = x*y;
-            if (cl.hasOption("p")) {
-                try {
-                    n = (int)(Double.parseDouble(cl.getOptionValue("p"))*nTiles/100);
-                    //n = (int) ((Double)cl.getParsedOptionValue("p")*nTiles/100); apache commons cli appears to be broken here
+            if (file != null) {
+                if (cl.hasOption("x")) {
+                    b = new HexBoard(file,false,random);
                 }
-                catch (Exception e) {
-                    System.err.println("Error parsing percentage of mines: "+e.getMessage());
+                else if (cl.hasOption("w")) {
+                    System.err.println("Sorry, reading wraparound boards from a text file isn't supported yet.  Save them as binary boards instead.");
                     return;
+                    //b = new WrapSquareBoard(file,true);
                 }
-            }
-            else if (cl.hasOption("n")) {
-                try {
-                    n = Integer.parseInt(cl.getOptionValue("n"));
-                    //n = (Integer)cl.getParsedOptionValue("n"); apache commons cli appears to be broken here
-                }
-                catch (Exception e) {
-                    System.err.println("Error parsing number of mines: "+e.getMessage());
-                    return;
+                else {
+                    b = new StandardBoard(file,false,random);
                 }
             }
-            else {
-                n = (int) (nTiles*0.206251);
+        }
+        else { //generate new random board
+            int[] size = boardSize(cl);
+            if (size == null) return;
+            b = newBoard(cl,size,false,random); //play prints the guesses itself
+        }
+        if (cl.hasOption("save")) {
+            try {
+                BinaryBoard.write((TwoDBoard)b,cl.getOptionValue("save"));
             }
-            if (cl.hasOption("x") && cl.hasOption("w")) {
-                System.err.println("Sorry, wraparound hexagonal grids not supported quite yet.");
+            catch (IOException|IllegalArgumentException e) {
+                System.err.println("Error saving board: "+e.getMessage());
                 return;
             }
-            else if (cl.hasOption("x")) {
-                b = new HexBoard(x,y,n,cl.hasOption("c"),true);
-            }
-            else if (cl.hasOption("w")) {
-                b = new WrapSquareBoard(x,y,n,cl.hasOption("c"),true);
-            }
-            else {
-                b = new StandardBoard(x,y,n,cl.hasOption("c"),true);
-            }
         }
+        if (!configure(b,cl,pool)) return;
+        long checkpointNanos;
+        try {
+            checkpointNanos = (long)(Double.parseDouble(cl.getOptionValue("checkpoint-interval","60"))*1e9);
+        }
+        catch (Exception e) {
+            System.err.println("Error parsing checkpoint interval: "+e.getMessage());
+            return;
+        }
+        if (play(b,true,detail,null,0,cl.getOptionValue("checkpoint"),checkpointNanos)) {
+            System.out.println("Won!");
+        }
+        if (cl.hasOption("metrics")) System.out.println(SolverMetrics.INSTANCE);
+    }
+    
+    /**
+     * Play a game until it is either won or a mine is hit.
+     *
+     * @param   b The Board to play on.
+     * @param   print true to print the board after each guess, and the whole board if a mine is hit.
+     * @param   detail true to also print the board each time a Tile is revealed or flagged without guessing.
+     * @param   stats If this is not null then the result of the game is recorded here.
+     * @param   seed The seed the Board was created with, recorded with the result so that the game can be replayed.
+     * @return  true if the game was won.
+     */
+    public static boolean play(Board b, boolean print, boolean detail, GameStats stats, long seed) {
+        return play(b,print,detail,stats,seed,null,0);
+    }
+    
+    /**
+     * Play a game until it is either won or a mine is hit, saving a checkpoint of the game every so often so that it can be resumed if it is interrupted.
+     *
+     * @param   b The Board to play on.
+     * @param   print true to print the board after each guess, and the whole board if a mine is hit.
+     * @param   detail true to also print the board each time a Tile is revealed or flagged without guessing.
+     * @param   stats If this is not null then the result of the game is recorded here.
+     * @param   seed The seed the Board was created with, recorded with the result so that the game can be replayed.
+     * @param   checkpoint The file to save checkpoints in, or null for none.  The checkpoint can be resumed by reading it with -f.
+     * @param   checkpointNanos The time to wait between checkpoints.  They are only saved between steps, so a single long guess may make the wait longer.
+     * @return  true if the game was won.
+     */
+    public static boolean play(Board b, boolean print, boolean detail, GameStats stats, long seed, String checkpoint, long checkpointNanos) {
+        boolean failure = false;
+        long start = System.nanoTime(), guesses = 0, steps = 0, lastCheckpoint = start;
         while (!b.remainingTiles.isEmpty()) {
+            if (checkpoint != null && System.nanoTime()-lastCheckpoint >= checkpointNanos) {
+                try {
+                    BinaryBoard.checkpoint((TwoDBoard)b,checkpoint);
+                }
+                catch (IOException|RuntimeException e) {
+                    System.err.println("Error saving checkpoint: "+e.getMessage());
+                }
+                lastCheckpoint = System.nanoTime();
+            }
             if (b.working != null && b.working.hasWork()) {
-                boolean doPrint = b.working.compareOne();
-                deterministicHelped = deterministicHelped || doPrint;
-                if (detail && doPrint) tryPrint(b);
+                boolean changed = b.working.compareOne();
+                steps++;
+                if (print && detail && changed) tryPrint(b);
             }
             else {
-                if (deterministicHelped && b.remainingN > 0) tryPrint(b);
+                guesses++;
+                boolean guessed;
                 try {
-                    b.statGuess();
+                    guessed = b.statGuess();
                 }
                 catch (BoomException e) {
-                    System.out.println("Hit a mine.  Lost.");
                     failure = true;
+                    if (print) System.out.println(b.getLastGuess());
                     break;
                 }
-                tryPrint(b);
-                deterministicHelped = false;
+                //printed on this thread, between steps, so the board shown is exactly the board after the guess
+                if (print && guessed) {
+                    System.out.println(b.getLastGuess());
+                    tryPrint(b);
+                }
             }
         }
-        if (failure) {
+        if (stats != null) {
+            stats.record(!failure,guesses,steps,System.nanoTime()-start,seed);
+        }
+        if (failure && print) {
+            System.out.println("Hit a mine.  Lost.");
             for (Iterator<Tile> tileIt = b.remainingIterator(); tileIt.hasNext();) {
                 Tile t = tileIt.next();
-                if (!(t.flagged || t.isRevealed())) {
+                if (!(t.isFlagged() || t.isRevealed())) {
                     try {
                         t.reveal();
                     }
@@ -144,9 +196,188 @@ public class sample {
             }
             tryPrint(b);
         }
+        return !failure;
+    }
+    
+    /**
+     * Play many randomly generated games without printing them, spread over a pool of threads, and print a summary of the results.  Every game has its own Board and Edge, so the only thing the threads share is the GameStats they record their results in.
+     *
+     * Each game also has its own source of randomness, seeded from the next number of a master source.  The seeds are drawn in order before the games are handed to the threads, so a batch with the same master seed plays the same games however the threads are scheduled, and any single game can be replayed by passing its seed to a normal run.  A game which throws anything at all is counted as an error, and the first game to fail is reported on stderr with its seed.
+     *
+     * @param   cl The command line options, which describe the boards to generate.
+     * @param   pool If this is not null then every Board uses it to enumerate large parts of the edge.
+     * @param   seeds The master source which the seed of each game is taken from.
+     */
+    public static void runBatch(CommandLine cl, final ForkJoinPool pool, SplittableRandom seeds) {
+        final int games, threads;
+        try {
+            games = Integer.parseInt(cl.getOptionValue("b"));
+            threads = (cl.hasOption("j") ? Integer.parseInt(cl.getOptionValue("j")) : Runtime.getRuntime().availableProcessors());
+        }
+        catch (Exception e) {
+            System.err.println("Error parsing batch size: "+e.getMessage());
+            return;
+        }
+        if (games < 1 || threads < 1) {
+            System.err.println("Error parsing batch size: the number of games and the number of jobs must both be positive.");
+            return;
+        }
+        if (cl.hasOption("f")) {
+            System.err.println("Batches are played on randomly generated boards, so a file can't be used.");
+            return;
+        }
+        final int[] size = boardSize(cl);
+        if (size == null) return;
+        final CommandLine options = cl;
+        final GameStats stats = new GameStats();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int g = 0; g < games; g++) {
+            final long seed = seeds.nextLong();
+            workers.execute(new Runnable() {
+                public void run() {
+                    try {
+                        Board b = newBoard(options,size,false,new SplittableRandom(seed));
+                        configure(b,options,pool);
+                        play(b,false,false,stats,seed);
+                    }
+                    catch (Throwable e) { //even an Error only loses this game, so every game is still counted in the summary
+                        stats.recordError(e,seed);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE,TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            System.err.println("Interrupted before the batch finished.");
+            workers.shutdownNow();
+        }
+        long wall = System.nanoTime()-start;
+        if (stats.firstError() != null) {
+            System.err.println(stats.errors()+" of the games failed.  The first to fail had seed "+stats.firstErrorSeed()+" (replay it with -r), and threw:");
+            stats.firstError().printStackTrace();
+        }
+        String lattice = (cl.hasOption("x") ? "hex" : (cl.hasOption("w") ? "wrap" : "square"));
+        boolean json = "json".equalsIgnoreCase(cl.getOptionValue("format","csv"));
+        stats.printSummary(System.out,json,lattice,size[0],size[1],size[2],wall);
+    }
+    
+    /**
+     * Read the size of a randomly generated board from the command line options.
+     *
+     * @param   cl The command line options.
+     * @return  The width, height and number of mines, or null if the options could not be parsed.
+     */
+    public static int[] boardSize(CommandLine cl) {
+        int x, y, n;
+        if (cl.hasOption("s")) {
+            String[] dimensions = cl.getOptionValues("s");
+            try {
+                x = Integer.parseInt(dimensions[0]);
+                y = Integer.parseInt(dimensions[1]);
+            }
+            catch (Exception e) {
+                System.err.println("Error parsing dimensions: "+e.getMessage());
+                return null;
+            }
+        }
         else {
-            System.out.println("Won!");
+            x = 30;
+            y = 16;
         }
+        int nTiles = x*y;
+        if (cl.hasOption("p")) {
+            try {
+                n = (int)(Double.parseDouble(cl.getOptionValue("p"))*nTiles/100);
+                //n = (int) ((Double)cl.getParsedOptionValue("p")*nTiles/100); apache commons cli appears to be broken here
+            }
+            catch (Exception e) {
+                System.err.println("Error parsing percentage of mines: "+e.getMessage());
+                return null;
+            }
+        }
+        else if (cl.hasOption("n")) {
+            try {
+                n = Integer.parseInt(cl.getOptionValue("n"));
+                //n = (Integer)cl.getParsedOptionValue("n"); apache commons cli appears to be broken here
+            }
+            catch (Exception e) {
+                System.err.println("Error parsing number of mines: "+e.getMessage());
+                return null;
+            }
+        }
+        else {
+            n = (int) (nTiles*0.206251);
+        }
+        return new int[] {x, y, n};
+    }
+    
+    /**
+     * Generate a new random board of the type chosen on the command line.
+     *
+     * @param   cl The command line options.
+     * @param   size The width, height and number of mines, as returned by boardSize.
+     * @param   probInfo Set to true to print guessing information to stdout.
+     * @param   random The source of randomness for the Board.
+     * @return  The new Board.
+     */
+    public static Board newBoard(CommandLine cl, int[] size, boolean probInfo, SplittableRandom random) {
+        if (cl.hasOption("x")) {
+            return new HexBoard(size[0],size[1],size[2],cl.hasOption("c"),probInfo,random,cl.hasOption("compact"));
+        }
+        else if (cl.hasOption("w")) {
+            return new WrapSquareBoard(size[0],size[1],size[2],cl.hasOption("c"),probInfo,random,cl.hasOption("compact"));
+        }
+        else {
+            return new StandardBoard(size[0],size[1],size[2],cl.hasOption("c"),probInfo,random,cl.hasOption("compact"));
+        }
+    }
+    
+    /**
+     * Apply the solving options from the command line to a Board.
+     *
+     * @param   b The Board to configure.
+     * @param   cl The command line options.
+     * @param   pool The pool to enumerate large parts of the edge on, or null.
+     * @return  false if the options could not be parsed.
+     */
+    public static boolean configure(Board b, CommandLine cl, ForkJoinPool pool) {
+        if (cl.hasOption("e")) {
+            b.odds = new ExactOdds();
+        }
+        b.enumerationPool = pool;
+        if (cl.hasOption("sample")) {
+            b.sampling = new MonteCarloOdds();
+            try {
+                b.sampling.minTiles = Integer.parseInt(cl.getOptionValue("sample"));
+            }
+            catch (Exception e) {
+                System.err.println("Error parsing sampling threshold: "+e.getMessage());
+                return false;
+            }
+        }
+        if (cl.hasOption("deadline")) {
+            try {
+                b.guessTimeoutNanos = (long)(Double.parseDouble(cl.getOptionValue("deadline"))*1e6);
+            }
+            catch (Exception e) {
+                System.err.println("Error parsing guess deadline: "+e.getMessage());
+                return false;
+            }
+        }
+        if (cl.hasOption("o")) {
+            try {
+                b.setSchedule(MineSetQueue.Policy.valueOf(cl.getOptionValue("o").toUpperCase()));
+            }
+            catch (Exception e) {
+                System.err.println("Unknown schedule: "+cl.getOptionValue("o"));
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
@@ -172,7 +403,7 @@ public class sample {
         Options opts = new Options();
         opts.addOption(Option.builder("f")
                        .longOpt("file")
-                       .desc("Do not randomly generate a board.  Read it from a file instead.")
+                       .desc("Do not randomly generate a board.  Read it from a file instead, either as text or as a binary board saved with --save or --checkpoint.")
                        .hasArg()
                        .build());
         OptionGroup gridOpts = new OptionGroup();
@@ -216,6 +447,80 @@ public class sample {
                        .longOpt("detail")
                        .desc("Print the board each time a tile changes.")
                        .build());
+        opts.addOption(Option.builder("e")
+                       .longOpt("exact")
+                       .desc("Calculate guessing probabilities exactly with BigDecimal instead of in log space.")
+                       .build());
+        opts.addOption(Option.builder("t")
+                       .longOpt("threads")
+                       .desc("Enumerate large parts of the edge in parallel on this many threads when guessing.")
+                       .hasArg()
+                       .type(Integer.class)
+                       .build());
+        opts.addOption(Option.builder()
+                       .longOpt("sample")
+                       .desc("Estimate guessing probabilities by sampling instead of enumerating when part of the edge has at least this many tiles.")
+                       .hasArg()
+                       .type(Integer.class)
+                       .build());
+        opts.addOption(Option.builder()
+                       .longOpt("deadline")
+                       .desc("Milliseconds each guess may take.  Enumeration which runs over falls back on sampling, and then on judging tiles from their own sets.")
+                       .hasArg()
+                       .type(Double.class)
+                       .build());
+        opts.addOption(Option.builder("o")
+                       .longOpt("schedule")
+                       .desc("Order in which to compare unfinished mine sets: fifo, smallest, fewest_possible or recent.")
+                       .hasArg()
+                       .build());
+        opts.addOption(Option.builder()
+                       .longOpt("compact")
+                       .desc("Store the board as one byte per tile, creating tile objects only when they are needed.  This allows much larger boards.")
+                       .build());
+        opts.addOption(Option.builder()
+                       .longOpt("save")
+                       .desc("Save the board to this file as a binary board before playing it.  Binary boards can be read back with -f, and load much faster than text.")
+                       .hasArg()
+                       .build());
+        opts.addOption(Option.builder()
+                       .longOpt("checkpoint")
+                       .desc("Save a checkpoint of the game in this file every so often, so that a long solve can be resumed by reading the file with -f.")
+                       .hasArg()
+                       .build());
+        opts.addOption(Option.builder()
+                       .longOpt("checkpoint-interval")
+                       .desc("The number of seconds between checkpoints.  The default is 60.")
+                       .hasArg()
+                       .type(Double.class)
+                       .build());
+        opts.addOption(Option.builder("r")
+                       .longOpt("seed")
+                       .desc("Seed the random number generator, so the same board is generated and played the same way each time.  In a batch this seeds the generator which the seed of each game is taken from.")
+                       .hasArg()
+                       .type(Long.class)
+                       .build());
+        opts.addOption(Option.builder("b")
+                       .longOpt("batch")
+                       .desc("Play this many random games without printing them, and print a summary of the results.")
+                       .hasArg()
+                       .type(Integer.class)
+                       .build());
+        opts.addOption(Option.builder("j")
+                       .longOpt("jobs")
+                       .desc("Play a batch of games on this many threads.  The default is one per processor.")
+                       .hasArg()
+                       .type(Integer.class)
+                       .build());
+        opts.addOption(Option.builder()
+                       .longOpt("format")
+                       .desc("Print the batch summary as csv (the default) or json.")
+                       .hasArg()
+                       .build());
+        opts.addOption(Option.builder()
+                       .longOpt("metrics")
+                       .desc("Print the solver metrics when finished.  The same metrics can be watched while the solver runs through JMX, as minesweep:type=SolverMetrics.")
+                       .build());
         opts.addOption(Option.builder("h")
                        .longOpt("h")
                        .desc("Print this message.")
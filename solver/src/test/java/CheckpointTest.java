@@ -0,0 +1,118 @@
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author  Matheson Longton
+ *
+ * Checks that a game saved as a checkpoint in the middle of comparing MineSets resumes exactly where it left off.  For each scheduling policy, on both normal and compact boards, a random game is played until comparison is under way, saved, and read back, and the state of the solver is compared with the original's, both straight away and after some more comparisons on each.  Both games are then played to the end, and must make the same guesses.
+ */
+public class CheckpointTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void resumesNormalBoards() throws IOException {
+        for (MineSetQueue.Policy p : MineSetQueue.Policy.values()) {
+            checkResume(p,false);
+        }
+    }
+    
+    @Test
+    public void resumesCompactBoards() throws IOException {
+        for (MineSetQueue.Policy p : MineSetQueue.Policy.values()) {
+            checkResume(p,true);
+        }
+    }
+    
+    /**
+     * Save a game part way through comparing MineSets under one policy and check that the restored game carries on in the same order.  The restored game is also switched to every other policy and back, which must not change its order either.
+     *
+     * @param   p The scheduling policy to play under.
+     * @param   compact Set to true to store the boards as a CellGrid.
+     */
+    private void checkResume(MineSetQueue.Policy p, boolean compact) throws IOException {
+        Board original = gameInProgress(p,compact,new SplittableRandom(1));
+        File file = folder.newFile();
+        BinaryBoard.checkpoint((TwoDBoard)original,file.getPath());
+        Board restored = BinaryBoard.read(file.getPath()).toBoard(false,new SplittableRandom(0),compact);
+        restored.setSchedule(p);
+        assertArrayEquals(p+" restored",solverState(original),solverState(restored));
+        for (MineSetQueue.Policy q : MineSetQueue.Policy.values()) {
+            restored.setSchedule(q);
+        }
+        restored.setSchedule(p);
+        assertArrayEquals(p+" after switching policy",solverState(original),solverState(restored));
+        for (int k = 0; k < 20 && original.working.hasWork(); k++) {
+            original.working.compareOne();
+            restored.working.compareOne();
+        }
+        assertArrayEquals(p+" after comparing",solverState(original),solverState(restored));
+        assertEquals(p+" guesses",playOut(original),playOut(restored));
+    }
+    
+    /**
+     * Play random expert boards until one still has MineSets waiting to be compared after its first few comparisons, so that they were not all added at once.
+     *
+     * @param   p The scheduling policy to play under.
+     * @param   compact Set to true to store the board as a CellGrid.
+     * @param   seeds The source which the seed of each game is taken from.
+     * @return  A game with MineSets waiting to be compared.
+     */
+    private static Board gameInProgress(MineSetQueue.Policy p, boolean compact, SplittableRandom seeds) {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Board b = new StandardBoard(30,16,99,true,false,new SplittableRandom(seeds.nextLong()),compact);
+            b.setSchedule(p);
+            try {
+                b.statGuess();
+            }
+            catch (BoomException e) {
+                continue;
+            }
+            for (int k = 0; k < 5 && b.working != null && b.working.hasWork(); k++) {
+                b.working.compareOne();
+            }
+            if (b.working != null && b.working.hasWork()) return b;
+        }
+        fail(p+": no game left MineSets to compare");
+        return null;
+    }
+    
+    /**
+     * Play a game until it is either won or a mine is hit.
+     *
+     * @param   b The Board to play on.
+     * @return  Each guess made, and whether the last one hit a mine.
+     */
+    private static List<String> playOut(Board b) {
+        List<String> guesses = new ArrayList<String>();
+        while (!b.remainingTiles.isEmpty()) {
+            if (b.working != null && b.working.hasWork()) {
+                b.working.compareOne();
+                continue;
+            }
+            try {
+                if (!b.statGuess()) break;
+            }
+            catch (BoomException e) {
+                guesses.add(b.getLastGuess()+" Boom");
+                break;
+            }
+            guesses.add(b.getLastGuess().toString());
+        }
+        return guesses;
+    }
+    
+    /**
+     * @return  The state of the solver of a Board, as written in a checkpoint.
+     */
+    private static byte[] solverState(Board b) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        b.writeSolverState(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+}